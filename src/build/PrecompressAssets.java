@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build step (process-resources): writes name.gz, and name.br when a brotli executable is on the
+ * PATH, next to every text asset under the given static directory. Spring's EncodedResourceResolver
+ * serves them to clients that accept the encoding. Variants that would not be smaller are skipped;
+ * up-to-date variants are left alone.
+ * Run as a single-file program: java src/build/PrecompressAssets.java target/classes/static
+ */
+public class PrecompressAssets {
+    private static final Set<String> EXTENSIONS = Set.of(".css", ".js", ".svg", ".json", ".txt");
+
+    public static void main(String[] args) throws Exception {
+        Path root = Path.of(args.length > 0 ? args[0] : "target/classes/static");
+        if (!Files.isDirectory(root)) {
+            System.out.println("[precompress] No static assets in " + root);
+            return;
+        }
+        boolean brotli = brotliAvailable();
+        if (!brotli) {
+            System.out.println("[precompress] brotli not found on PATH, writing gzip variants only");
+        }
+        List<Path> assets;
+        try (Stream<Path> files = Files.walk(root)) {
+            assets = files.filter(Files::isRegularFile)
+                    .filter(file -> EXTENSIONS.stream().anyMatch(file.getFileName().toString()::endsWith))
+                    .toList();
+        }
+        for (Path asset : assets) {
+            gzip(asset);
+            if (brotli) {
+                brotli(asset);
+            } else if (!upToDate(asset, sibling(asset, ".br"))) {
+                // Never leave a stale variant behind for a changed asset
+                Files.deleteIfExists(sibling(asset, ".br"));
+            }
+        }
+        System.out.println("[precompress] " + assets.size() + " assets in " + root);
+    }
+
+    private static void gzip(Path asset) throws IOException {
+        Path target = sibling(asset, ".gz");
+        if (upToDate(asset, target)) {
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(target);
+             GZIPOutputStream gzip = new GZIPOutputStream(out) {
+                 {
+                     def.setLevel(Deflater.BEST_COMPRESSION);
+                 }
+             }) {
+            Files.copy(asset, gzip);
+        }
+        keepIfSmaller(asset, target);
+    }
+
+    private static void brotli(Path asset) throws IOException, InterruptedException {
+        Path target = sibling(asset, ".br");
+        if (upToDate(asset, target)) {
+            return;
+        }
+        Process process = new ProcessBuilder("brotli", "--best", "--force", "--output=" + target, asset.toString())
+                .inheritIO()
+                .start();
+        if (!process.waitFor(1, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            process.destroyForcibly();
+            throw new IOException("brotli failed for " + asset);
+        }
+        keepIfSmaller(asset, target);
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Process process = new ProcessBuilder("brotli", "--version").redirectErrorStream(true).start();
+            process.getInputStream().transferTo(OutputStream.nullOutputStream());
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static Path sibling(Path asset, String suffix) {
+        return asset.resolveSibling(asset.getFileName() + suffix);
+    }
+
+    private static boolean upToDate(Path asset, Path target) throws IOException {
+        return Files.exists(target)
+                && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(asset)) >= 0;
+    }
+
+    private static void keepIfSmaller(Path asset, Path target) throws IOException {
+        if (Files.size(target) >= Files.size(asset)) {
+            Files.delete(target);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package fit.hutech.spring.benchmarks;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Category;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to view model mapping; {@code constructor} is the same mapping without the
+ * Lombok builder. Run with -prof gc to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookGetVmBenchmark {
+    Book book;
+
+    @Setup
+    public void setUp() {
+        book = Book.builder()
+                .id(42L)
+                .title("Clean Code")
+                .author("Robert C. Martin")
+                .price(32.5)
+                .category(Category.builder().id(7L).name("Software").build())
+                .build();
+    }
+
+    @Benchmark
+    public BookGetVm from() {
+        return BookGetVm.from(book);
+    }
+
+    @Benchmark
+    public BookGetVm constructor() {
+        return new BookGetVm(book.getId(), book.getTitle(), book.getAuthor(), book.getPrice(),
+                book.getCategory() != null ? book.getCategory().getName() : null);
+    }
+}
@@ -0,0 +1,55 @@
+package fit.hutech.spring.benchmarks;
+
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.Item;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart mutations against a cart already holding {@code size} lines; every operation
+ * targets the last line so a linear scan pays the full length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartBenchmark {
+    @Param({"1", "10", "100", "500"})
+    int size;
+
+    Cart cart;
+    long lastId;
+    long newId;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        for (long id = 1; id <= size; id++) {
+            cart.addItems(new Item(id, "Book " + id, 10.0 + id, 1));
+        }
+        lastId = size;
+        newId = size + 1;
+    }
+
+    @Benchmark
+    public Cart addExisting() {
+        cart.addItems(new Item(lastId, "Book " + lastId, 10.0, 1));
+        return cart;
+    }
+
+    @Benchmark
+    public Cart addNewThenRemove() {
+        cart.addItems(new Item(newId, "Book " + newId, 10.0, 1));
+        cart.removeItems(newId);
+        return cart;
+    }
+
+    @Benchmark
+    public Cart update() {
+        cart.updateItems(lastId, 3);
+        return cart;
+    }
+}
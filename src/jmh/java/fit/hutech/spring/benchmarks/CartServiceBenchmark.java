@@ -0,0 +1,72 @@
+package fit.hutech.spring.benchmarks;
+
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.Item;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.ICartStore;
+import fit.hutech.spring.repositories.IInvoiceRepository;
+import fit.hutech.spring.repositories.IItemInvoiceRepository;
+import fit.hutech.spring.repositories.InMemoryCartStore;
+import fit.hutech.spring.services.BestSellerTracker;
+import fit.hutech.spring.services.CartService;
+import fit.hutech.spring.services.SalesRollupService;
+import fit.hutech.spring.utils.BookstoreMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart totals as rendered on every cart page, read back from the cart store like a request does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CartServiceBenchmark {
+    @Param({"1", "10", "100", "500"})
+    int size;
+
+    CartService cartService;
+    MockHttpSession session;
+
+    @Setup
+    public void setUp() {
+        var cartStore = new InMemoryCartStore();
+        cartService = totalsOnly(cartStore);
+        session = new MockHttpSession();
+        Cart cart = new Cart();
+        for (long id = 1; id <= size; id++) {
+            cart.addItems(new Item(id, "Book " + id, 10.0 + id, (int) (id % 5) + 1));
+        }
+        // No security context here, so the service keys the cart by session id
+        cartStore.save(ICartStore.SESSION_KEY_PREFIX + session.getId(), cart);
+    }
+
+    /**
+     * A CartService for the totals path, which reads the cart store only; checkout and the batch
+     * API would fail on the missing repositories and trackers
+     */
+    static CartService totalsOnly(ICartStore cartStore) {
+        IInvoiceRepository noInvoices = null;
+        IItemInvoiceRepository noInvoiceLines = null;
+        IBookRepository noBooks = null;
+        SalesRollupService noRollups = null;
+        BestSellerTracker noBestSellers = null;
+        var metrics = new BookstoreMetrics(new SimpleMeterRegistry(), cartStore);
+        return new CartService(noInvoices, noInvoiceLines, noBooks, metrics, cartStore, noRollups, noBestSellers);
+    }
+
+    @Benchmark
+    public double sumPrice() {
+        return cartService.getSumPrice(session);
+    }
+
+    @Benchmark
+    public long sumQuantity() {
+        return cartService.getSumQuantity(session);
+    }
+}
@@ -0,0 +1,76 @@
+package fit.hutech.spring.benchmarks;
+
+import fit.hutech.spring.entities.Invoice;
+import fit.hutech.spring.entities.Role;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashSet behaviour for entities whose hashCode() is getClass().hashCode(): every element
+ * lands in one bucket, so add and contains compare against the whole set (a tree bin cannot
+ * order these non-Comparable keys either). The Long id set is the per-id hashing baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityHashSetBenchmark {
+    @Param({"2", "10", "100", "1000"})
+    int size;
+
+    List<Role> roles;
+    List<Invoice> invoices;
+    Set<Role> roleSet;
+    Set<Invoice> invoiceSet;
+    Set<Long> idSet;
+    Role lastRole;
+    Invoice lastInvoice;
+
+    @Setup
+    public void setUp() {
+        roles = new ArrayList<>(size);
+        invoices = new ArrayList<>(size);
+        idSet = new HashSet<>();
+        for (long id = 1; id <= size; id++) {
+            roles.add(Role.builder().id(id).name("ROLE_" + id).build());
+            invoices.add(Invoice.builder().id(id).price(10.0).build());
+            idSet.add(id);
+        }
+        roleSet = new HashSet<>(roles);
+        invoiceSet = new HashSet<>(invoices);
+        lastRole = Role.builder().id((long) size).name("ROLE_" + size).build();
+        lastInvoice = Invoice.builder().id((long) size).price(10.0).build();
+    }
+
+    @Benchmark
+    public Set<Role> buildRoleSet() {
+        return new HashSet<>(roles);
+    }
+
+    @Benchmark
+    public Set<Invoice> buildInvoiceSet() {
+        return new HashSet<>(invoices);
+    }
+
+    @Benchmark
+    public boolean containsRole() {
+        return roleSet.contains(lastRole);
+    }
+
+    @Benchmark
+    public boolean containsInvoice() {
+        return invoiceSet.contains(lastInvoice);
+    }
+
+    @Benchmark
+    public boolean containsIdBaseline() {
+        return idSet.contains((long) size);
+    }
+}
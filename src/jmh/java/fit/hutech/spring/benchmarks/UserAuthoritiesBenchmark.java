@@ -0,0 +1,41 @@
+package fit.hutech.spring.benchmarks;
+
+import fit.hutech.spring.entities.Role;
+import fit.hutech.spring.entities.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * User.getAuthorities(), called by Spring Security on every authorization decision
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UserAuthoritiesBenchmark {
+    @Param({"1", "2", "5"})
+    int roles;
+
+    User user;
+
+    @Setup
+    public void setUp() {
+        Set<Role> userRoles = new HashSet<>();
+        for (long id = 1; id <= roles; id++) {
+            userRoles.add(Role.builder().id(id).name("ROLE_" + id).build());
+        }
+        user = User.builder().id(1L).username("reader").roles(userRoles).build();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return user.getAuthorities();
+    }
+}
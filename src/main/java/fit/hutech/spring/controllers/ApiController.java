@@ -1,15 +1,46 @@
 package fit.hutech.spring.controllers;
 
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.services.BestSellerTracker;
+import fit.hutech.spring.services.BookImportService;
 import fit.hutech.spring.services.BookService;
+import fit.hutech.spring.services.CartService;
+import fit.hutech.spring.services.CatalogVersions;
+import fit.hutech.spring.services.CategoryService;
+import fit.hutech.spring.services.SalesRollupService;
+import fit.hutech.spring.viewmodels.BookCursor;
 import fit.hutech.spring.viewmodels.BookGetVm;
+import fit.hutech.spring.viewmodels.BookWindowVm;
+import fit.hutech.spring.viewmodels.CartOpVm;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -18,25 +49,45 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ApiController {
     private final BookService bookService;
+    private final CategoryService categoryService;
+    private final CartService cartService;
+    private final BookImportService bookImportService;
+    private final BestSellerTracker bestSellerTracker;
+    private final CatalogVersions catalogVersions;
+    private final SalesRollupService salesRollupService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/books")
     public ResponseEntity<?> getAllBooks(
             @RequestParam(required = false, defaultValue = "0") Integer pageNo,
             @RequestParam(required = false, defaultValue = "20") Integer pageSize,
-            @RequestParam(required = false, defaultValue = "id") String sortBy) {
+            @RequestParam(required = false, defaultValue = "id") String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean includeTotal,
+            WebRequest request) {
+        // Read before the query: a write committing meanwhile only makes the tag older, never newer
+        String etag = catalogVersions.collectionEtag(catalogVersions.current());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         try {
             int page = pageNo == null ? 0 : Math.max(0, pageNo);
             int size = pageSize == null ? 20 : Math.max(1, pageSize);
             String sort = sortBy == null || sortBy.isBlank() ? "id" : sortBy;
             
+            // Any cursor parameter (an empty one for the first page) switches to keyset mode
+            if (cursor != null) {
+                return getBooksByCursor(cursor, size, sort, includeTotal, etag);
+            }
+            
             log.info("API: Fetching all books - page={}, size={}, sortBy={}", page, size, sort);
             
-            List<BookGetVm> books = bookService.getAllBooks(page, size, sort)
-                    .stream()
-                    .map(BookGetVm::from)
-                    .toList();
+            List<BookGetVm> books = bookService.getAllBookVms(page, size, sort);
             
-            return ResponseEntity.ok(books);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .body(books);
         } catch (Exception e) {
             log.error("API: Error fetching all books", e);
             Map<String, String> error = new HashMap<>();
@@ -45,8 +96,49 @@ public class ApiController {
         }
     }
 
+    private ResponseEntity<?> getBooksByCursor(String cursor, int size, String sortBy, boolean includeTotal, String etag) {
+        BookCursor after = null;
+        String sort = sortBy;
+        try {
+            if (!cursor.isBlank()) {
+                after = BookCursor.decode(cursor);
+                sort = after.sortBy();
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("API: Invalid books cursor: {}", cursor);
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid cursor"));
+        }
+        if (!BookCursor.SORT_COLUMNS.contains(sort)) {
+            log.warn("API: Unsupported sort column for cursor paging: {}", sort);
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported sortBy for cursor paging"));
+        }
+        
+        log.info("API: Fetching books by cursor - size={}, sortBy={}, cursor={}", size, sort, cursor);
+        
+        // Read one extra row to learn whether another page exists
+        List<Book> rows = bookService.getBooksAfter(after, size + 1, sort);
+        boolean hasNext = rows.size() > size;
+        List<Book> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? BookCursor.after(sort, pageRows.get(size - 1)).encode() : null;
+        Long total = includeTotal ? bookService.countAllBooks() : null;
+        
+        List<BookGetVm> books = pageRows.stream()
+                .map(BookGetVm::from)
+                .toList();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .body(new BookWindowVm(books, next, total));
+    }
+
     @GetMapping("/books/search")
-    public ResponseEntity<?> searchBooks(@RequestParam(required = false) String keyword) {
+    public ResponseEntity<?> searchBooks(@RequestParam(required = false) String keyword,
+                                         @RequestParam(defaultValue = "" + BookService.MAX_SEARCH_RESULTS) int limit,
+                                         WebRequest request) {
+        String etag = catalogVersions.collectionEtag(catalogVersions.current());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         try {
             if (keyword == null || keyword.trim().isBlank()) {
                 log.warn("API: Search books called with empty keyword");
@@ -56,12 +148,12 @@ public class ApiController {
             String searchKeyword = keyword.trim();
             log.info("API: Searching books - keyword={}", searchKeyword);
             
-            List<BookGetVm> books = bookService.searchBook(searchKeyword)
-                    .stream()
-                    .map(BookGetVm::from)
-                    .toList();
+            List<BookGetVm> books = bookService.searchBookVms(searchKeyword, limit);
             
-            return ResponseEntity.ok(books);
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .body(books);
         } catch (Exception e) {
             log.error("API: Error searching books with keyword: {}", keyword, e);
             Map<String, String> error = new HashMap<>();
@@ -70,17 +162,147 @@ public class ApiController {
         }
     }
 
+    /**
+     * Best sellers of the last 1h, 24h or 7d from the in-memory sketch; no database query
+     * unless the ranking changed since the last call
+     */
+    @GetMapping("/books/bestsellers")
+    public ResponseEntity<?> getBestSellers(@RequestParam(required = false, defaultValue = "24h") String window,
+                                            @RequestParam(required = false, defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(bestSellerTracker.top(BestSellerTracker.Window.fromLabel(window), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/books/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(required = false, defaultValue = "ndjson") String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            log.warn("API: Unsupported export format: {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        log.info("API: Exporting books - format={}", format);
+        
+        // Rows go straight from the JDBC cursor to the socket; nothing is collected in between
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("id,title,author,price,category\n");
+            }
+            try {
+                bookService.forEachBook(book -> {
+                    try {
+                        var vm = BookGetVm.from(book);
+                        writer.write(csv ? toCsvLine(vm) : objectMapper.writeValueAsString(vm));
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                log.warn("API: Book export aborted by client", e);
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    private static String toCsvLine(BookGetVm book) {
+        return String.join(",",
+                String.valueOf(book.id()),
+                csvField(book.title()),
+                csvField(book.author()),
+                book.price() == null ? "" : String.valueOf(book.price()),
+                csvField(book.category()));
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    /**
+     * Start a bulk import from a CSV (text/csv) or NDJSON (application/x-ndjson) request body of any size.
+     * Answers 202 right after the upload is spooled; poll the Location for progress.
+     */
+    @PostMapping(value = "/books/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> importBooks(HttpServletRequest request) {
+        var format = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                ? BookImportService.Format.NDJSON
+                : BookImportService.Format.CSV;
+        try {
+            log.info("API: Importing books - format={}, contentLength={}", format, request.getContentLengthLong());
+            var status = bookImportService.submit(request.getInputStream(), format);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/books/import/" + status.id()))
+                    .body(status);
+        } catch (IOException e) {
+            log.error("API: Error receiving book import", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to receive upload"));
+        }
+    }
+
+    @GetMapping("/books/import/{id}")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getBookImport(@PathVariable String id) {
+        return bookImportService.getStatus(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/books/import/{id}/errors")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<Resource> getBookImportErrors(@PathVariable String id) {
+        return bookImportService.getErrorReport(id)
+                .map(path -> ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + id + "-errors.csv\"")
+                        .<Resource>body(new FileSystemResource(path)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/books/{id}")
-    public ResponseEntity<?> getBookById(@PathVariable Long id) {
+    public ResponseEntity<?> getBookById(@PathVariable Long id, WebRequest request) {
         try {
             if (id == null || id <= 0) {
                 log.warn("API: Invalid book id: {}", id);
                 return ResponseEntity.badRequest().build();
             }
             
+            // A book served before and unchanged since is answered from memory
+            var categories = categoryService.getCategorySnapshot();
+            var known = catalogVersions.bookVersion(id);
+            if (known.isPresent()
+                    && request.checkNotModified(CatalogVersions.bookEtag(id, known.getAsLong(), categories))) {
+                return null;
+            }
+            
             log.info("API: Fetching book by id={}", id);
+            long readAt = catalogVersions.current();
             return bookService.getBookById(id)
-                    .map(book -> ResponseEntity.ok(BookGetVm.from(book)))
+                    .<ResponseEntity<?>>map(book -> {
+                        catalogVersions.recordBook(id, book.getVersion(), readAt);
+                        // A matching If-None-Match still becomes a 304 when the entity is written
+                        return ResponseEntity.ok()
+                                .cacheControl(CacheControl.noCache())
+                                .eTag(CatalogVersions.bookEtag(id, book.getVersion(), categories))
+                                .body(BookGetVm.from(book));
+                    })
                     .orElseGet(() -> {
                         log.warn("API: Book not found - id={}", id);
                         return ResponseEntity.notFound().build();
@@ -119,4 +341,84 @@ public class ApiController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Batch of add/update/remove operations on the caller's cart, applied atomically.
+     * JSON only, so a cross-site form cannot post here without a CORS preflight.
+     */
+    @PostMapping(value = "/cart/ops", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> applyCartOps(HttpSession session, @RequestBody List<CartOpVm> ops) {
+        try {
+            return ResponseEntity.ok(cartService.applyOps(session, ops));
+        } catch (IllegalArgumentException e) {
+            log.warn("API: Rejected cart batch: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Revenue and units per day, read from the sales rollups; the last 30 days by default
+     */
+    @GetMapping("/reports/sales/days")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getSalesByDay(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return salesReport(from, to, salesRollupService::getDailyTotals);
+    }
+
+    @GetMapping("/reports/sales/categories")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getSalesByCategory(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return salesReport(from, to, salesRollupService::getCategoryTotals);
+    }
+
+    @GetMapping("/reports/sales/books")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> getSalesByBook(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false, defaultValue = "20") int limit) {
+        return salesReport(from, to, (start, end) -> salesRollupService.getTopBooks(start, end, limit));
+    }
+
+    /**
+     * Recompute the sales rollups from the invoice history. /api/** skips CSRF, so the request must be
+     * sent as application/json (the body is ignored, e.g. {}): a cross-site form cannot send that type
+     * without a preflight
+     */
+    @PostMapping(value = "/reports/sales/rebuild", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public ResponseEntity<?> rebuildSalesRollups() {
+        try {
+            return ResponseEntity.ok(salesRollupService.rebuild());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> salesReport(LocalDate from, LocalDate to,
+                                          BiFunction<LocalDate, LocalDate, List<?>> report) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        try {
+            return ResponseEntity.ok(report.apply(start, end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<?> getAllCategories(WebRequest request) {
+        var snapshot = categoryService.getCategorySnapshot();
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.etag())
+                .body(snapshot.categories());
+    }
+}
@@ -2,9 +2,12 @@ package fit.hutech.spring.controllers;
 
 import fit.hutech.spring.daos.Item;
 import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.services.BookListCache;
 import fit.hutech.spring.services.BookService;
 import fit.hutech.spring.services.CartService;
 import fit.hutech.spring.services.CategoryService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
@@ -24,22 +27,19 @@ public class BookController {
     private final BookService bookService;
     private final CategoryService categoryService;
     private final CartService cartService;
+    private final BookListCache bookListCache;
 
     @GetMapping
     public String showAllBooks(@NotNull Model model,
                                @RequestParam(defaultValue = "0") Integer pageNo,
                                @RequestParam(defaultValue = "20") Integer pageSize,
-                               @RequestParam(defaultValue = "id") String sortBy) {
+                               @RequestParam(defaultValue = "id") String sortBy,
+                               HttpServletRequest request,
+                               HttpServletResponse response) {
         try {
-            long totalBooks = bookService.countAllBooks();
-            int totalPages = (int) Math.ceil((double) totalBooks / pageSize);
+            model.addAttribute("bookTable", bookListCache.render(pageNo, pageSize, sortBy, request, response));
             
-            model.addAttribute("books", bookService.getAllBooks(pageNo, pageSize, sortBy));
-            model.addAttribute("currentPage", pageNo);
-            model.addAttribute("totalPages", totalPages);
-            model.addAttribute("categories", categoryService.getAllCategories());
-            
-            log.debug("Books list retrieved - page: {}, size: {}, total: {}", pageNo, pageSize, totalBooks);
+            log.debug("Books list rendered - page: {}, size: {}, sort: {}", pageNo, pageSize, sortBy);
             return "book/list";
         } catch (Exception e) {
             log.error("Error retrieving books list", e);
@@ -79,6 +79,7 @@ public class BookController {
     @PostMapping("/edit")
     public String editBook(@Valid @ModelAttribute("book") Book book,
                            @NotNull BindingResult bindingResult,
+                           @RequestParam(required = false) Integer stockShown,
                            Model model) {
         if (bindingResult.hasErrors()) {
             var errors = bindingResult.getAllErrors()
@@ -91,7 +92,7 @@ public class BookController {
         }
         
         try {
-            bookService.updateBook(book);
+            bookService.updateBook(book, stockShown);
             log.info("Book updated: id={}, title={}", book.getId(), book.getTitle());
             return "redirect:/books";
         } catch (Exception e) {
@@ -136,17 +137,14 @@ public class BookController {
     }
 
     @GetMapping("/search")
-    public String searchBook(@NotNull Model model,
-                             @RequestParam String keyword,
-                             @RequestParam(defaultValue = "0") Integer pageNo,
-                             @RequestParam(defaultValue = "20") Integer pageSize) {
+    public String searchBook(@NotNull Model model, @RequestParam String keyword) {
         try {
             if (keyword == null || keyword.trim().isEmpty()) {
                 return "redirect:/books";
             }
             
-            model.addAttribute("books", bookService.searchBook(keyword.trim()));
-            model.addAttribute("currentPage", pageNo);
+            // The best hits on one page, without a pager
+            model.addAttribute("books", bookService.searchBookVms(keyword.trim(), BookService.MAX_SEARCH_RESULTS));
             model.addAttribute("keyword", keyword);
             model.addAttribute("categories", categoryService.getAllCategories());
             
@@ -171,9 +169,7 @@ public class BookController {
                 return "redirect:/books";
             }
             
-            var cart = cartService.getCart(session);
-            cart.addItems(new Item(id, name, price, quantity));
-            cartService.updateCart(session, cart);
+            cartService.updateCart(session, cart -> cart.addItems(new Item(id, name, price, quantity)));
             
             log.info("Item added to cart: bookId={}, quantity={}", id, quantity);
             return "redirect:/books";
@@ -1,5 +1,6 @@
 package fit.hutech.spring.controllers;
 import fit.hutech.spring.services.CartService;
+import fit.hutech.spring.services.OutOfStockException;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
@@ -8,6 +9,7 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @Controller
 @RequestMapping("/cart")
 @RequiredArgsConstructor
@@ -16,37 +18,34 @@ private final CartService cartService;
 @GetMapping
 public String showCart(HttpSession session,
 @NotNull Model model) {
-model.addAttribute("cart", cartService.getCart(session));
-model.addAttribute("totalPrice",
-cartService.getSumPrice(session));
-model.addAttribute("totalQuantity",
-cartService.getSumQuantity(session));
+var cart = cartService.getCart(session);
+model.addAttribute("cart", cart);
+model.addAttribute("totalPrice", cart.getTotalPrice());
+model.addAttribute("totalQuantity", cart.getTotalQuantity());
 return "book/cart";
 }
 @GetMapping("/removeFromCart/{id}")
 public String removeFromCart(HttpSession session,
 @PathVariable Long id) {
-var cart = cartService.getCart(session);
-cart.removeItems(id);
+cartService.updateCart(session, cart -> cart.removeItems(id));
 return "redirect:/cart";
 }
 @GetMapping("/updateCart/{id}/{quantity}")
 public String updateCart(HttpSession session,
                          @PathVariable Long id,
                          @PathVariable int quantity) {
-    if (quantity <= 0) {
-        var cart = cartService.getCart(session);
-        cart.removeItems(id);
-    } else {
-        var cart = cartService.getCart(session);
-        cart.updateItems(id, quantity);
-        cartService.updateCart(session, cart);
-    }
+    // Quantities of zero or less drop the line
+    cartService.updateCart(session, cart -> cart.updateItems(id, quantity));
     return "redirect:/cart";
 }
 @GetMapping("/checkout")
-public String checkout(HttpSession session) {
-cartService.saveCart(session);
+public String checkout(HttpSession session,
+                       @NotNull RedirectAttributes redirectAttributes) {
+try {
+    cartService.saveCart(session);
+} catch (OutOfStockException e) {
+    redirectAttributes.addFlashAttribute("outOfStock", e.getTitles());
+}
 return "redirect:/cart";
 }
 @GetMapping("/clearCart")
@@ -1,5 +1,7 @@
 package fit.hutech.spring.controllers;
 
+import fit.hutech.spring.services.BestSellerTracker;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -9,11 +11,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @Controller
 @RequestMapping("/")
 @Slf4j
+@RequiredArgsConstructor
 public class HomeController {
+    private static final int BEST_SELLERS_ON_HOME = 5;
+    private final BestSellerTracker bestSellerTracker;
     
     @GetMapping
     public String home(Model model) {
         log.debug("Home page requested");
+        model.addAttribute("bestSellers", bestSellerTracker.top(BestSellerTracker.Window.DAY, BEST_SELLERS_ON_HOME));
         return "home/index";
     }
 }
\ No newline at end of file
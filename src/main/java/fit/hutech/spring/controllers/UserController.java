@@ -56,8 +56,9 @@ public class UserController {
             return "user/register";
         }
 
-        // 2. Check if username already exists
-        if (userService.findByUsername(user.getUsername())) {
+        // 2. Check if username or email already exists (one query at most)
+        var identity = userService.checkIdentity(user.getUsername(), user.getEmail());
+        if (identity.usernameTaken()) {
             log.warn("Registration failed - username already exists: {}", user.getUsername());
             model.addAttribute("error", "Username already exists. Please choose another username.");
             model.addAttribute("user", user);
@@ -65,7 +66,7 @@ public class UserController {
         }
 
         // 3. Check if email already exists
-        if (userService.findByEmail(user.getEmail())) {
+        if (identity.emailTaken()) {
             log.warn("Registration failed - email already exists: {}", user.getEmail());
             model.addAttribute("error", "Email already exists. Please use a different email.");
             model.addAttribute("user", user);
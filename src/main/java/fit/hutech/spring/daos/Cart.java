@@ -1,14 +1,47 @@
 package fit.hutech.spring.daos;
 
-import lombok.Data;
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Data
+/**
+ * Shopping cart keyed by book id. Each line is replaced atomically inside its map bin, and the
+ * quantity and price totals are adjusted in the same step, so updates from several tabs never
+ * block each other on a cart-wide lock and every operation is O(1) whatever the cart size.
+ */
 public class Cart {
-    private List<Item> cartItems = new ArrayList<>();
-    
+    /**
+     * Most copies of one book a line holds; adds and updates beyond it are capped, so a line never
+     * overflows an int. The cart total is a long, since many lines at the cap exceed one
+     */
+    public static final int MAX_QUANTITY = 1_000_000;
+
+    private final ConcurrentMap<Long, Line> lines = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong totalQuantity = new AtomicLong();
+    // Hundredths of the price unit, so adding and removing the same line always nets to zero
+    private final AtomicLong totalPriceHundredths = new AtomicLong();
+
+    /**
+     * Immutable cart line; seq keeps the order lines were first added in
+     */
+    private record Line(long seq, Long bookId, String bookName, Double price, int quantity) {
+        long hundredths() {
+            return price == null ? 0 : Math.round(price * 100) * quantity;
+        }
+
+        Line withQuantity(int newQuantity) {
+            return new Line(seq, bookId, bookName, price, newQuantity);
+        }
+
+        Item toItem() {
+            return new Item(bookId, bookName, price, quantity);
+        }
+    }
+
     /**
      * Add item to cart or update quantity if already exists
      */
@@ -16,22 +49,17 @@ public class Cart {
         if (item == null || item.getBookId() == null || item.getQuantity() <= 0) {
             throw new IllegalArgumentException("Invalid item");
         }
-        
-        boolean isExist = cartItems.stream()
-                .filter(i -> Objects.equals(i.getBookId(), item.getBookId()))
-                .findFirst()
-                .map(i -> {
-                    int newQuantity = i.getQuantity() + item.getQuantity();
-                    i.setQuantity(newQuantity);
-                    return true;
-                })
-                .orElse(false);
-        
-        if (!isExist) {
-            cartItems.add(item);
-        }
+
+        lines.compute(item.getBookId(), (bookId, line) -> {
+            Line next = line == null
+                    ? new Line(sequence.incrementAndGet(), bookId, item.getBookName(), item.getPrice(),
+                            Math.min(item.getQuantity(), MAX_QUANTITY))
+                    : line.withQuantity((int) Math.min((long) line.quantity() + item.getQuantity(), MAX_QUANTITY));
+            adjustTotals(line, next);
+            return next;
+        });
     }
-    
+
     /**
      * Remove item from cart by book id
      */
@@ -39,9 +67,12 @@ public class Cart {
         if (bookId == null) {
             throw new IllegalArgumentException("Book ID cannot be null");
         }
-        cartItems.removeIf(item -> Objects.equals(item.getBookId(), bookId));
+        lines.computeIfPresent(bookId, (id, line) -> {
+            adjustTotals(line, null);
+            return null;
+        });
     }
-    
+
     /**
      * Update item quantity in cart
      */
@@ -49,13 +80,55 @@ public class Cart {
         if (bookId == null) {
             throw new IllegalArgumentException("Book ID cannot be null");
         }
-        
+
         if (quantity <= 0) {
             removeItems(bookId);
         } else {
-            cartItems.stream()
-                    .filter(item -> Objects.equals(item.getBookId(), bookId))
-                    .forEach(item -> item.setQuantity(quantity));
+            lines.computeIfPresent(bookId, (id, line) -> {
+                Line next = line.withQuantity(Math.min(quantity, MAX_QUANTITY));
+                adjustTotals(line, next);
+                return next;
+            });
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Copy of the lines in the order they were first added
+     */
+    public List<Item> getCartItems() {
+        return lines.values().stream()
+                .sorted(Comparator.comparingLong(Line::seq))
+                .map(Line::toItem)
+                .toList();
+    }
+
+    /**
+     * Copy of one line, or empty when the book is not in the cart
+     */
+    public Optional<Item> findItem(Long bookId) {
+        return Optional.ofNullable(bookId == null ? null : lines.get(bookId)).map(Line::toItem);
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity.get();
+    }
+
+    public double getTotalPrice() {
+        return totalPriceHundredths.get() / 100.0;
+    }
+
+    private void adjustTotals(Line previous, Line next) {
+        int quantity = (next == null ? 0 : next.quantity()) - (previous == null ? 0 : previous.quantity());
+        long hundredths = (next == null ? 0 : next.hundredths()) - (previous == null ? 0 : previous.hundredths());
+        totalQuantity.addAndGet(quantity);
+        totalPriceHundredths.addAndGet(hundredths);
+    }
+}
@@ -0,0 +1,91 @@
+package fit.hutech.spring.daos;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of a {@link Cart}, used by the cart stores instead of Java serialization.
+ * <pre>
+ * version:byte lineCount:varint
+ * per line, in cart order:
+ *   bookId:varint quantity:varint price:varint name:varint-length + UTF-8
+ * </pre>
+ * Prices are written in hundredths (minor units) plus one, with 0 meaning no price.
+ * A three-line cart typically fits in well under 100 bytes.
+ */
+public final class CartCodec {
+    private static final byte VERSION = 1;
+
+    private CartCodec() {
+    }
+
+    public static byte[] encode(Cart cart) {
+        var items = cart.getCartItems();
+        var out = new ByteArrayOutputStream(16 + items.size() * 24);
+        out.write(VERSION);
+        writeVarint(out, items.size());
+        for (Item item : items) {
+            writeVarint(out, item.getBookId());
+            writeVarint(out, item.getQuantity());
+            writeVarint(out, item.getPrice() == null ? 0 : Math.round(item.getPrice() * 100) + 1);
+            byte[] name = item.getBookName() == null ? new byte[0] : item.getBookName().getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, name.length);
+            out.write(name, 0, name.length);
+        }
+        return out.toByteArray();
+    }
+
+    public static Cart decode(byte[] bytes) {
+        try {
+            var in = ByteBuffer.wrap(bytes);
+            if (in.get() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cart encoding version");
+            }
+            long lines = readVarint(in);
+            var cart = new Cart();
+            for (long i = 0; i < lines; i++) {
+                long bookId = readVarint(in);
+                int quantity = Math.toIntExact(readVarint(in));
+                long price = readVarint(in);
+                byte[] name = new byte[Math.toIntExact(readVarint(in))];
+                in.get(name);
+                cart.addItems(new Item(bookId, new String(name, StandardCharsets.UTF_8),
+                        price == 0 ? null : (price - 1) / 100.0, quantity));
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after cart");
+            }
+            return cart;
+        } catch (BufferUnderflowException | ArithmeticException e) {
+            throw new IllegalArgumentException("Truncated or corrupt cart", e);
+        }
+    }
+
+    /**
+     * Unsigned LEB128: 7 bits per byte, high bit set while more bytes follow
+     */
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value in cart: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+}
@@ -0,0 +1,87 @@
+package fit.hutech.spring.daos;
+
+import fit.hutech.spring.entities.SalesDayBook;
+import fit.hutech.spring.entities.SalesDayCategory;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sales totals per day × category and day × book, accumulated before they are added to the
+ * rollup tables. Keys iterate in (day, id) order, so every writer locks shared rows in the same order.
+ */
+public class SalesRollup {
+    /**
+     * Category id used for books without a category; the id is part of the table key
+     */
+    public static final long NO_CATEGORY = 0L;
+
+    private static final Comparator<SalesDayCategory.Key> CATEGORY_ORDER = Comparator
+            .comparing(SalesDayCategory.Key::day)
+            .thenComparing(SalesDayCategory.Key::categoryId);
+    private static final Comparator<SalesDayBook.Key> BOOK_ORDER = Comparator
+            .comparing(SalesDayBook.Key::day)
+            .thenComparing(SalesDayBook.Key::bookId);
+
+    private final Map<SalesDayCategory.Key, Totals> byCategory = new TreeMap<>(CATEGORY_ORDER);
+    private final Map<SalesDayBook.Key, Totals> byBook = new TreeMap<>(BOOK_ORDER);
+
+    /**
+     * Units and revenue (hundredths of the price unit) of one key
+     */
+    public static final class Totals {
+        private long units;
+        private long revenueHundredths;
+
+        public long units() {
+            return units;
+        }
+
+        public long revenueHundredths() {
+            return revenueHundredths;
+        }
+
+        private void add(long moreUnits, long moreHundredths) {
+            units += moreUnits;
+            revenueHundredths += moreHundredths;
+        }
+    }
+
+    /**
+     * Count one invoice line; lines without a book or a price are skipped
+     */
+    public void add(LocalDate day, Long bookId, Long categoryId, int quantity, Double unitPrice) {
+        if (bookId == null || unitPrice == null) {
+            return;
+        }
+        long hundredths = Math.round(unitPrice * 100) * quantity;
+        Long category = categoryId != null ? categoryId : NO_CATEGORY;
+        byCategory.computeIfAbsent(new SalesDayCategory.Key(day, category), k -> new Totals()).add(quantity, hundredths);
+        byBook.computeIfAbsent(new SalesDayBook.Key(day, bookId), k -> new Totals()).add(quantity, hundredths);
+    }
+
+    /**
+     * Fold another rollup into this one and return this
+     */
+    public SalesRollup merge(SalesRollup other) {
+        other.byCategory.forEach((key, totals) ->
+                byCategory.computeIfAbsent(key, k -> new Totals()).add(totals.units, totals.revenueHundredths));
+        other.byBook.forEach((key, totals) ->
+                byBook.computeIfAbsent(key, k -> new Totals()).add(totals.units, totals.revenueHundredths));
+        return this;
+    }
+
+    public Map<SalesDayCategory.Key, Totals> byCategory() {
+        return byCategory;
+    }
+
+    public Map<SalesDayBook.Key, Totals> byBook() {
+        return byBook;
+    }
+
+    public boolean isEmpty() {
+        return byBook.isEmpty();
+    }
+}
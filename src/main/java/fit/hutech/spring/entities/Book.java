@@ -3,9 +3,13 @@ import fit.hutech.spring.validators.annotations.ValidCategoryId;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -16,6 +20,8 @@ import java.util.Objects;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "book")
 public class Book {
 @Id
@@ -32,6 +38,22 @@ private String author;
 @Column(name = "price")
 @Positive(message = "Price must be greater than 0")
 private Double price;
+/**
+ * Units on hand; null means the book is not stock-tracked and never runs out.
+ * Written on insert only; later changes go through IBookStockRepository's SQL, so an entity
+ * update can never put back a stock value that checkouts have moved on from.
+ */
+@Column(name = "stock", updatable = false)
+@PositiveOrZero(message = "Stock must not be negative")
+private Integer stock;
+/**
+ * Bumped by Hibernate on every update; the API's ETag for the book is derived from it.
+ * Rows written with plain JDBC (bulk import) start at the column default 0.
+ */
+@Version
+@ColumnDefault("0")
+@Column(name = "version", nullable = false)
+private long version;
 @ManyToOne(fetch = FetchType.LAZY)
 @JoinColumn(name = "category_id", referencedColumnName = "id")
 @ValidCategoryId
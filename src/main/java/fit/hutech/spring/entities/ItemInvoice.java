@@ -19,6 +19,11 @@ private Long Id;
 @Column(name = "quantity")
 @Positive(message = "Quantity must be positive")
 private int quantity;
+/**
+ * Unit price charged at checkout; null on lines written before it was recorded
+ */
+@Column(name = "price")
+private Double price;
 @ManyToOne(fetch = FetchType.LAZY)
 @JoinColumn(name = "book_id", referencedColumnName = "id")
 @ToString.Exclude
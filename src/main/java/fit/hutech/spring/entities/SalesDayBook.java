@@ -0,0 +1,52 @@
+package fit.hutech.spring.entities;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.Hibernate;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+/**
+ * Units sold and revenue per day and book, kept current by checkout and
+ * rebuilt from the invoices by SalesRollupService. Mapped so ddl-auto creates it;
+ * writes go through JDBC upserts.
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@IdClass(SalesDayBook.Key.class)
+@Table(name = "sales_day_book")
+public class SalesDayBook {
+@Id
+@Column(name = "sale_day")
+private LocalDate day;
+@Id
+@Column(name = "book_id")
+private Long bookId;
+@Column(name = "units", nullable = false)
+private long units;
+/**
+ * Revenue in hundredths of the price unit, so increments add up exactly
+ */
+@Column(name = "revenue_hundredths", nullable = false)
+private long revenueHundredths;
+
+public record Key(LocalDate day, Long bookId) implements Serializable {
+}
+@Override
+public boolean equals(Object o) {
+if (this == o) return true;
+if (o == null || Hibernate.getClass(this) !=
+Hibernate.getClass(o)) return false;
+SalesDayBook that = (SalesDayBook) o;
+return getDay() != null && Objects.equals(getDay(), that.getDay())
+&& Objects.equals(getBookId(), that.getBookId());
+}
+@Override
+public int hashCode() {
+return getClass().hashCode();
+}
+}
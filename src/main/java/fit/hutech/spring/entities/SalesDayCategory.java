@@ -0,0 +1,52 @@
+package fit.hutech.spring.entities;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.Hibernate;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+/**
+ * Units sold and revenue per day and category (0 for books without one), kept current by checkout and
+ * rebuilt from the invoices by SalesRollupService. Mapped so ddl-auto creates it;
+ * writes go through JDBC upserts.
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@IdClass(SalesDayCategory.Key.class)
+@Table(name = "sales_day_category")
+public class SalesDayCategory {
+@Id
+@Column(name = "sale_day")
+private LocalDate day;
+@Id
+@Column(name = "category_id")
+private Long categoryId;
+@Column(name = "units", nullable = false)
+private long units;
+/**
+ * Revenue in hundredths of the price unit, so increments add up exactly
+ */
+@Column(name = "revenue_hundredths", nullable = false)
+private long revenueHundredths;
+
+public record Key(LocalDate day, Long categoryId) implements Serializable {
+}
+@Override
+public boolean equals(Object o) {
+if (this == o) return true;
+if (o == null || Hibernate.getClass(this) !=
+Hibernate.getClass(o)) return false;
+SalesDayCategory that = (SalesDayCategory) o;
+return getDay() != null && Objects.equals(getDay(), that.getDay())
+&& Objects.equals(getCategoryId(), that.getCategoryId());
+}
+@Override
+public int hashCode() {
+return getClass().hashCode();
+}
+}
@@ -0,0 +1,47 @@
+package fit.hutech.spring.entities;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.ColumnDefault;
+import java.util.Date;
+import java.util.Objects;
+/**
+ * Table behind JdbcCartStore: the CartCodec bytes of a signed-in user's cart (empty once checked out
+ * or cleared) and a version bumped by every write, which writes are conditional on.
+ * Mapped so ddl-auto creates it; reads and writes go through JDBC batches.
+ */
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "cart")
+public class StoredCart {
+@Id
+@Column(name = "cart_key", length = 120)
+private String cartKey;
+@Lob
+@Column(name = "content", nullable = false)
+@ToString.Exclude
+private byte[] content;
+@ColumnDefault("0")
+@Column(name = "version", nullable = false)
+private long version;
+@Column(name = "updated_at", nullable = false)
+private Date updatedAt;
+@Override
+public boolean equals(Object o) {
+if (this == o) return true;
+if (o == null || Hibernate.getClass(this) !=
+Hibernate.getClass(o)) return false;
+StoredCart storedCart = (StoredCart) o;
+return getCartKey() != null && Objects.equals(getCartKey(),
+storedCart.getCartKey());
+}
+@Override
+public int hashCode() {
+return getClass().hashCode();
+}
+}
@@ -0,0 +1,125 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.CartCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.FileLockInterruptionException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+/**
+ * One encoded file per cart under app.cart.store.directory (app.cart.store=file). Writes go
+ * through a temp file and an atomic rename, so readers never see half a cart. Updates take
+ * a striped in-process lock plus an OS file lock on a sibling .lock file, which also
+ * serializes nodes sharing the directory.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "file")
+@Slf4j
+public class FileCartStore implements ICartStore {
+private static final String CART_SUFFIX = ".cart";
+private static final String LOCK_SUFFIX = ".lock";
+private static final int STRIPES = 64;
+// Static: file locks are held per JVM, not per store instance
+private static final Lock[] STRIPE_LOCKS = new Lock[STRIPES];
+static {
+    for (int i = 0; i < STRIPES; i++) {
+        STRIPE_LOCKS[i] = new ReentrantLock();
+    }
+}
+private final Path directory;
+public FileCartStore(@Value("${app.cart.store.directory:${java.io.tmpdir}/bookstore-carts}") Path directory)
+        throws IOException {
+    this.directory = Files.createDirectories(directory);
+    log.info("File cart store at {}", this.directory.toAbsolutePath());
+}
+@Override
+public Cart load(String key) {
+    try {
+        return CartCodec.decode(Files.readAllBytes(file(key, CART_SUFFIX)));
+    } catch (NoSuchFileException e) {
+        return new Cart();
+    } catch (IOException e) {
+        throw new UncheckedIOException(e);
+    } catch (IllegalArgumentException e) {
+        log.warn("Discarding unreadable cart: key={}", key, e);
+        return new Cart();
+    }
+}
+@Override
+public void save(String key, Cart cart) {
+    Path target = file(key, CART_SUFFIX);
+    try {
+        if (cart.isEmpty()) {
+            Files.deleteIfExists(target);
+            return;
+        }
+        Path temp = Files.createTempFile(directory, "cart", ".tmp");
+        try {
+            Files.write(temp, CartCodec.encode(cart));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    } catch (IOException e) {
+        throw new UncheckedIOException(e);
+    }
+}
+@Override
+public void delete(String key) {
+    try {
+        Files.deleteIfExists(file(key, CART_SUFFIX));
+    } catch (IOException e) {
+        throw new UncheckedIOException(e);
+    }
+}
+@Override
+public Cart update(String key, Consumer<Cart> change) {
+    // The JVM allows one FileLock per file, so threads of this node queue on the stripe first
+    Lock stripe = STRIPE_LOCKS[Math.floorMod(key.hashCode(), STRIPES)];
+    stripe.lock();
+    try (FileChannel channel = FileChannel.open(file(key, LOCK_SUFFIX),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+         FileLock lock = channel.lock()) {
+        Cart cart = load(key);
+        change.accept(cart);
+        // An interrupt closes the channel and releases the lock; do not write unguarded
+        if (!lock.isValid()) {
+            throw new FileLockInterruptionException();
+        }
+        save(key, cart);
+        return cart;
+    } catch (IOException e) {
+        throw new UncheckedIOException(e);
+    } finally {
+        stripe.unlock();
+    }
+}
+@Override
+public long count() {
+    try (Stream<Path> files = Files.list(directory)) {
+        return files.filter(path -> path.getFileName().toString().endsWith(CART_SUFFIX)).count();
+    } catch (IOException e) {
+        throw new UncheckedIOException(e);
+    }
+}
+private Path file(String key, String suffix) {
+    // Reversible and safe in any file system for user names and session ids
+    return directory.resolve(Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(key.getBytes(StandardCharsets.UTF_8)) + suffix);
+}
+}
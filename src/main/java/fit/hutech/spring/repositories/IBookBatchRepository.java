@@ -0,0 +1,10 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.entities.Book;
+import java.util.List;
+public interface IBookBatchRepository {
+/**
+ * Insert the books as one JDBC batch (one multi-row INSERT with rewriteBatchedStatements).
+ * Ids are not read back; only the category id of each book is used.
+ */
+void insertAll(List<Book> books);
+}
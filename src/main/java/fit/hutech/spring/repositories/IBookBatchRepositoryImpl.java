@@ -0,0 +1,25 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.entities.Book;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Types;
+import java.util.List;
+@RequiredArgsConstructor
+public class IBookBatchRepositoryImpl implements IBookBatchRepository {
+private static final String INSERT_SQL =
+        "INSERT INTO book (title, author, price, stock, category_id) VALUES (?, ?, ?, ?, ?)";
+private final JdbcTemplate jdbcTemplate;
+@Override
+public void insertAll(List<Book> books) {
+    if (books.isEmpty()) {
+        return;
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, books, books.size(), (ps, book) -> {
+        ps.setString(1, book.getTitle());
+        ps.setString(2, book.getAuthor());
+        ps.setObject(3, book.getPrice(), Types.DOUBLE);
+        ps.setObject(4, book.getStock(), Types.INTEGER);
+        ps.setLong(5, book.getCategory().getId());
+    });
+}
+}
@@ -1,19 +1,57 @@
 package fit.hutech.spring.repositories;
 
 import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface IBookRepository extends JpaRepository<Book, Long> {
+public interface IBookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>,
+        IBookStockRepository, IBookBatchRepository {
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(b.id), 0) FROM Book b")
+    long findMaxId();
+
+    @EntityGraph(attributePaths = "category")
+    Slice<Book> findAllBy(Pageable pageable);
+
+    @Query("""
+        SELECT new fit.hutech.spring.viewmodels.BookGetVm(b.id, b.title, b.author, b.price, c.name)
+        FROM Book b
+        LEFT JOIN b.category c
+        """)
+    Slice<BookGetVm> findAllBookVms(Pageable pageable);
+
+    @Query("""
+        SELECT new fit.hutech.spring.viewmodels.BookGetVm(b.id, b.title, b.author, b.price, c.name)
+        FROM Book b
+        LEFT JOIN b.category c
+        WHERE b.id IN ?1
+        """)
+    List<BookGetVm> findBookVmsByIds(Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
     @Query("""
         SELECT b FROM Book b
-        WHERE b.title LIKE %?1%
-        OR b.author LIKE %?1%
-        OR b.category.name LIKE %?1%
+        LEFT JOIN FETCH b.category
+        ORDER BY b.id
         """)
-    List<Book> searchBook(String keyword);
+    Stream<Book> streamAllBooks();
 }
\ No newline at end of file
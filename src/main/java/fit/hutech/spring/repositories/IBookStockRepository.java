@@ -0,0 +1,16 @@
+package fit.hutech.spring.repositories;
+import java.util.Map;
+import java.util.Set;
+public interface IBookStockRepository {
+/**
+ * Take the quantities (book id -> quantity) off stock with one JDBC batch of conditional
+ * updates and return the ids whose stock was too low; callers roll back when it is not empty
+ */
+Set<Long> reserveStock(Map<Long, Integer> quantities);
+/**
+ * Apply an edit of a book's stock from shown (what the editor saw) to submitted. Between two
+ * numbers only the difference is applied, at least down to 0, so units reserved since are kept;
+ * switching tracking on or off (either value null) sets the submitted value
+ */
+void editStock(Long id, Integer shown, Integer submitted);
+}
@@ -0,0 +1,59 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.utils.TransactionUtils;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+@RequiredArgsConstructor
+public class IBookStockRepositoryImpl implements IBookStockRepository {
+private static final String RESERVE_SQL =
+        "UPDATE book SET stock = stock - ? WHERE id = ? AND stock >= ?";
+private static final String ADJUST_SQL =
+        "UPDATE book SET stock = GREATEST(stock + ?, 0) WHERE id = ? AND stock IS NOT NULL";
+private static final String SET_SQL = "UPDATE book SET stock = ? WHERE id = ?";
+private final JdbcTemplate jdbcTemplate;
+private final EntityManagerFactory entityManagerFactory;
+@Override
+public Set<Long> reserveStock(Map<Long, Integer> quantities) {
+    if (quantities.isEmpty()) {
+        return Set.of();
+    }
+    // Ascending ids so concurrent checkouts lock shared rows in the same order
+    List<Map.Entry<Long, Integer>> lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+    int[][] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, lines, lines.size(), (ps, line) -> {
+        ps.setInt(1, line.getValue());
+        ps.setLong(2, line.getKey());
+        ps.setInt(3, line.getValue());
+    });
+    Set<Long> shortIds = new HashSet<>();
+    for (int i = 0; i < lines.size(); i++) {
+        if (counts[0][i] == 0) {
+            shortIds.add(lines.get(i).getKey());
+        }
+    }
+    // The update bypasses Hibernate, so drop the cached copies once the new stock is visible
+    var cache = entityManagerFactory.getCache();
+    TransactionUtils.afterCommit(() -> lines.forEach(line -> cache.evict(Book.class, line.getKey())));
+    return shortIds;
+}
+@Override
+public void editStock(Long id, Integer shown, Integer submitted) {
+    if (Objects.equals(shown, submitted)) {
+        return;
+    }
+    if (shown != null && submitted != null) {
+        jdbcTemplate.update(ADJUST_SQL, submitted - shown, id);
+    } else {
+        jdbcTemplate.update(SET_SQL, submitted, id);
+    }
+    var cache = entityManagerFactory.getCache();
+    TransactionUtils.afterCommit(() -> cache.evict(Book.class, id));
+}
+}
@@ -0,0 +1,30 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.Cart;
+import java.util.function.Consumer;
+/**
+ * Where carts live between requests, keyed by CartService (the user name, or the session id
+ * before login). Implementations hold the {@link fit.hutech.spring.daos.CartCodec} bytes,
+ * so any node that can reach the store can serve the cart.
+ * Selected with app.cart.store: jdbc (default), file or memory.
+ */
+public interface ICartStore {
+String USER_KEY_PREFIX = "user:";
+String SESSION_KEY_PREFIX = "session:";
+/**
+ * A detached copy of the stored cart, or an empty cart
+ */
+Cart load(String key);
+/**
+ * Replace the stored cart; an empty cart removes it
+ */
+void save(String key, Cart cart);
+void delete(String key);
+/**
+ * Read, change and write back one cart without losing concurrent updates to the same key
+ */
+Cart update(String key, Consumer<Cart> change);
+/**
+ * Number of non-empty carts, as far as this node can tell without a query (polled by a gauge)
+ */
+long count();
+}
@@ -1,8 +1,17 @@
 package fit.hutech.spring.repositories;
 import fit.hutech.spring.entities.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 @Repository
 public interface ICategoryRepository extends
 JpaRepository<Category, Long> {
-}
\ No newline at end of file
+@Override
+@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+List<Category> findAll();
+List<Category> findByNameIn(Collection<String> names);
+}
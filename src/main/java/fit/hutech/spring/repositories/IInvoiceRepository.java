@@ -1,8 +1,13 @@
 package fit.hutech.spring.repositories;
 import fit.hutech.spring.entities.Invoice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 @Repository
 public interface IInvoiceRepository extends JpaRepository<Invoice,
 Long>{
+@Query("SELECT COALESCE(MIN(i.id), 0) FROM Invoice i")
+long findMinId();
+@Query("SELECT COALESCE(MAX(i.id), 0) FROM Invoice i")
+long findMaxId();
 }
\ No newline at end of file
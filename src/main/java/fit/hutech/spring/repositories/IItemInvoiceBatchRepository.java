@@ -0,0 +1,35 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.SalesRollup;
+import fit.hutech.spring.entities.ItemInvoice;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+public interface IItemInvoiceBatchRepository {
+/**
+ * Insert all invoice lines as a single JDBC batch (IDENTITY ids keep Hibernate from batching them)
+ */
+void insertAll(Long invoiceId, List<ItemInvoice> itemInvoices);
+/**
+ * Sales totals of the invoices with afterInvoiceId &lt; id &lt;= upToInvoiceId, by invoice day in the zone.
+ * Lines without a recorded price are counted at the book's current price.
+ */
+SalesRollup rollUp(long afterInvoiceId, long upToInvoiceId, ZoneId zone);
+/**
+ * {@link #rollUp(long, long, ZoneId)} that also sets bit (id - afterInvoiceId - 1) of seen for every invoice it counted
+ */
+SalesRollup rollUp(long afterInvoiceId, long upToInvoiceId, ZoneId zone, BitSet seen);
+/**
+ * Sales totals of the given invoices, read in IN lists of at most 1000 ids
+ */
+SalesRollup rollUpInvoices(Collection<Long> invoiceIds, ZoneId zone);
+/**
+ * Stream every line of the invoices dated at or after since, oldest invoice first
+ */
+void forEachLineSince(Instant since, LineConsumer consumer);
+@FunctionalInterface
+interface LineConsumer {
+void accept(Instant invoiceDate, long bookId, int quantity);
+}
+}
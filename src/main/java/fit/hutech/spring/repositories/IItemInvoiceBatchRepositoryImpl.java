@@ -0,0 +1,96 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.SalesRollup;
+import fit.hutech.spring.entities.ItemInvoice;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.LongConsumer;
+@RequiredArgsConstructor
+public class IItemInvoiceBatchRepositoryImpl implements IItemInvoiceBatchRepository {
+private static final String INSERT_SQL =
+        "INSERT INTO item_invoice (quantity, price, book_id, invoice_id) VALUES (?, ?, ?, ?)";
+private static final String ROLL_UP_SELECT = """
+        SELECT i.invoice_date, ii.book_id, b.category_id, ii.quantity, COALESCE(ii.price, b.price) AS price, ii.invoice_id
+        FROM item_invoice ii
+        JOIN invoices i ON i.id = ii.invoice_id
+        LEFT JOIN book b ON b.id = ii.book_id
+        """;
+private static final String ROLL_UP_SQL = ROLL_UP_SELECT + "WHERE ii.invoice_id > ? AND ii.invoice_id <= ?";
+private static final int IN_LIST_SIZE = 1000;
+private static final String LINES_SINCE_SQL = """
+        SELECT i.invoice_date, ii.book_id, ii.quantity
+        FROM invoices i
+        JOIN item_invoice ii ON ii.invoice_id = i.id
+        WHERE i.invoice_date >= ?
+        ORDER BY i.id""";
+private final JdbcTemplate jdbcTemplate;
+@Override
+public void insertAll(Long invoiceId, List<ItemInvoice> itemInvoices) {
+    if (itemInvoices.isEmpty()) {
+        return;
+    }
+    jdbcTemplate.batchUpdate(INSERT_SQL, itemInvoices, itemInvoices.size(), (ps, itemInvoice) -> {
+        ps.setInt(1, itemInvoice.getQuantity());
+        ps.setObject(2, itemInvoice.getPrice(), Types.DOUBLE);
+        ps.setLong(3, itemInvoice.getBook().getId());
+        ps.setLong(4, invoiceId);
+    });
+}
+@Override
+public SalesRollup rollUp(long afterInvoiceId, long upToInvoiceId, ZoneId zone) {
+    return rollUp(afterInvoiceId, upToInvoiceId, zone, invoiceId -> {
+    });
+}
+@Override
+public SalesRollup rollUp(long afterInvoiceId, long upToInvoiceId, ZoneId zone, BitSet seen) {
+    return rollUp(afterInvoiceId, upToInvoiceId, zone, invoiceId -> seen.set(Math.toIntExact(invoiceId - afterInvoiceId - 1)));
+}
+private SalesRollup rollUp(long afterInvoiceId, long upToInvoiceId, ZoneId zone, LongConsumer invoices) {
+    SalesRollup rollup = new SalesRollup();
+    jdbcTemplate.query(ROLL_UP_SQL, rs -> {
+        addLine(rollup, rs, zone);
+        invoices.accept(rs.getLong(6));
+    }, afterInvoiceId, upToInvoiceId);
+    return rollup;
+}
+@Override
+public SalesRollup rollUpInvoices(Collection<Long> invoiceIds, ZoneId zone) {
+    SalesRollup rollup = new SalesRollup();
+    List<Long> ids = List.copyOf(invoiceIds);
+    for (int from = 0; from < ids.size(); from += IN_LIST_SIZE) {
+        List<Long> batch = ids.subList(from, Math.min(ids.size(), from + IN_LIST_SIZE));
+        String sql = ROLL_UP_SELECT + "WHERE ii.invoice_id IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ")";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> addLine(rollup, rs, zone), batch.toArray());
+    }
+    return rollup;
+}
+private static void addLine(SalesRollup rollup, ResultSet rs, ZoneId zone) throws SQLException {
+    Timestamp date = rs.getTimestamp(1);
+    if (date != null) {
+        rollup.add(date.toInstant().atZone(zone).toLocalDate(),
+                rs.getObject(2, Long.class),
+                rs.getObject(3, Long.class),
+                rs.getInt(4),
+                rs.getObject(5, Double.class));
+    }
+}
+@Override
+public void forEachLineSince(Instant since, LineConsumer consumer) {
+    jdbcTemplate.query(LINES_SINCE_SQL, rs -> {
+        long bookId = rs.getLong(2);
+        if (!rs.wasNull()) {
+            consumer.accept(rs.getTimestamp(1).toInstant(), bookId, rs.getInt(3));
+        }
+    }, Timestamp.from(since));
+}
+}
@@ -4,5 +4,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 @Repository
 public interface IItemInvoiceRepository extends
-JpaRepository<ItemInvoice, Long>{
-}
\ No newline at end of file
+JpaRepository<ItemInvoice, Long>, IItemInvoiceBatchRepository {
+}
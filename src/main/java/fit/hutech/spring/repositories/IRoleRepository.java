@@ -1,8 +1,12 @@
 package fit.hutech.spring.repositories;
 import fit.hutech.spring.entities.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 @Repository
 public interface IRoleRepository extends JpaRepository<Role, Long>{
+@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
 Role findRoleById(Long id);
-}
\ No newline at end of file
+}
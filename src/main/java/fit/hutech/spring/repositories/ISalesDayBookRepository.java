@@ -0,0 +1,22 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.entities.SalesDayBook;
+import fit.hutech.spring.viewmodels.SalesByBookVm;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+@Repository
+public interface ISalesDayBookRepository extends
+JpaRepository<SalesDayBook, SalesDayBook.Key> {
+@Query("""
+    SELECT new fit.hutech.spring.viewmodels.SalesByBookVm(s.bookId, b.title, SUM(s.units), SUM(s.revenueHundredths))
+    FROM SalesDayBook s
+    LEFT JOIN Book b ON b.id = s.bookId
+    WHERE s.day BETWEEN ?1 AND ?2
+    GROUP BY s.bookId, b.title
+    ORDER BY SUM(s.units) DESC, s.bookId
+    """)
+List<SalesByBookVm> findBookTotals(LocalDate from, LocalDate to, Limit limit);
+}
@@ -0,0 +1,30 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.entities.SalesDayCategory;
+import fit.hutech.spring.viewmodels.SalesByCategoryVm;
+import fit.hutech.spring.viewmodels.SalesByDayVm;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.List;
+@Repository
+public interface ISalesDayCategoryRepository extends
+JpaRepository<SalesDayCategory, SalesDayCategory.Key>, ISalesRollupBatchRepository {
+@Query("""
+    SELECT new fit.hutech.spring.viewmodels.SalesByDayVm(s.day, SUM(s.units), SUM(s.revenueHundredths))
+    FROM SalesDayCategory s
+    WHERE s.day BETWEEN ?1 AND ?2
+    GROUP BY s.day
+    ORDER BY s.day
+    """)
+List<SalesByDayVm> findDailyTotals(LocalDate from, LocalDate to);
+@Query("""
+    SELECT new fit.hutech.spring.viewmodels.SalesByCategoryVm(s.categoryId, c.name, SUM(s.units), SUM(s.revenueHundredths))
+    FROM SalesDayCategory s
+    LEFT JOIN Category c ON c.id = s.categoryId
+    WHERE s.day BETWEEN ?1 AND ?2
+    GROUP BY s.categoryId, c.name
+    ORDER BY SUM(s.revenueHundredths) DESC, s.categoryId
+    """)
+List<SalesByCategoryVm> findCategoryTotals(LocalDate from, LocalDate to);
+}
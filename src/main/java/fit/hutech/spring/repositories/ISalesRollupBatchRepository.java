@@ -0,0 +1,12 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.SalesRollup;
+public interface ISalesRollupBatchRepository {
+/**
+ * Add the rollup's totals to both rollup tables, creating missing rows, as JDBC batches
+ */
+void addRollup(SalesRollup rollup);
+/**
+ * Delete every row of both rollup tables
+ */
+void clearRollups();
+}
@@ -0,0 +1,44 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.SalesRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Date;
+import java.util.ArrayList;
+@RequiredArgsConstructor
+public class ISalesRollupBatchRepositoryImpl implements ISalesRollupBatchRepository {
+private static final String ADD_CATEGORY_SQL = """
+        INSERT INTO sales_day_category (sale_day, category_id, units, revenue_hundredths) VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE units = units + VALUES(units),
+        revenue_hundredths = revenue_hundredths + VALUES(revenue_hundredths)""";
+private static final String ADD_BOOK_SQL = """
+        INSERT INTO sales_day_book (sale_day, book_id, units, revenue_hundredths) VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE units = units + VALUES(units),
+        revenue_hundredths = revenue_hundredths + VALUES(revenue_hundredths)""";
+private final JdbcTemplate jdbcTemplate;
+@Override
+public void addRollup(SalesRollup rollup) {
+    if (rollup.isEmpty()) {
+        return;
+    }
+    // Categories before books, each in key order, so concurrent checkouts take row locks in the same order
+    var categories = new ArrayList<>(rollup.byCategory().entrySet());
+    jdbcTemplate.batchUpdate(ADD_CATEGORY_SQL, categories, categories.size(), (ps, entry) -> {
+        ps.setDate(1, Date.valueOf(entry.getKey().day()));
+        ps.setLong(2, entry.getKey().categoryId());
+        ps.setLong(3, entry.getValue().units());
+        ps.setLong(4, entry.getValue().revenueHundredths());
+    });
+    var books = new ArrayList<>(rollup.byBook().entrySet());
+    jdbcTemplate.batchUpdate(ADD_BOOK_SQL, books, books.size(), (ps, entry) -> {
+        ps.setDate(1, Date.valueOf(entry.getKey().day()));
+        ps.setLong(2, entry.getKey().bookId());
+        ps.setLong(3, entry.getValue().units());
+        ps.setLong(4, entry.getValue().revenueHundredths());
+    });
+}
+@Override
+public void clearRollups() {
+    jdbcTemplate.update("DELETE FROM sales_day_category");
+    jdbcTemplate.update("DELETE FROM sales_day_book");
+}
+}
@@ -1,12 +1,46 @@
 package fit.hutech.spring.repositories;
 
+import java.util.List;
 import java.util.Optional;
 import fit.hutech.spring.entities.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface IUserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * The unique columns of a user, without loading the entity and its roles
+     */
+    interface UserIdentity {
+        Long getId();
+        String getUsername();
+        String getEmail();
+    }
+
+    List<UserIdentity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Which of the two values each clashing user holds, compared by the database's own collation
+     */
+    interface IdentityClash {
+        boolean getUsernameTaken();
+        boolean getEmailTaken();
+    }
+
+    /**
+     * Users already holding the username or the email, in one query (at most two rows);
+     * a null value matches nothing
+     */
+    @Query("""
+        SELECT CASE WHEN u.username = ?1 THEN true ELSE false END AS usernameTaken,
+               CASE WHEN u.email = ?2 THEN true ELSE false END AS emailTaken
+        FROM User u
+        WHERE u.username = ?1 OR u.email = ?2
+        """)
+    List<IdentityClash> findIdentityClashes(String username, String email);
+}
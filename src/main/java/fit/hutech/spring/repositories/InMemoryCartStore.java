@@ -0,0 +1,48 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.CartCodec;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+/**
+ * Encoded carts in a map: one node only, lost on restart (app.cart.store=memory)
+ */
+@Repository
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+public class InMemoryCartStore implements ICartStore {
+private final ConcurrentMap<String, byte[]> carts = new ConcurrentHashMap<>();
+@Override
+public Cart load(String key) {
+    byte[] bytes = carts.get(key);
+    return bytes == null ? new Cart() : CartCodec.decode(bytes);
+}
+@Override
+public void save(String key, Cart cart) {
+    if (cart.isEmpty()) {
+        carts.remove(key);
+    } else {
+        carts.put(key, CartCodec.encode(cart));
+    }
+}
+@Override
+public void delete(String key) {
+    carts.remove(key);
+}
+@Override
+public Cart update(String key, Consumer<Cart> change) {
+    Cart[] result = new Cart[1];
+    carts.compute(key, (k, bytes) -> {
+        Cart cart = bytes == null ? new Cart() : CartCodec.decode(bytes);
+        change.accept(cart);
+        result[0] = cart;
+        return cart.isEmpty() ? null : CartCodec.encode(cart);
+    });
+    return result[0];
+}
+@Override
+public long count() {
+    return carts.size();
+}
+}
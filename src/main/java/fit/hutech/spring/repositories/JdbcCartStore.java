@@ -0,0 +1,308 @@
+package fit.hutech.spring.repositories;
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.CartCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+/**
+ * Carts of signed-in users persisted in the cart table behind a write-behind buffer (the default store).
+ * Changes are made to the in-memory copy; changed keys are collected and written once per
+ * app.cart.store.flush-interval however often they changed, and once more on shutdown.
+ * Every row carries a version. Each request first checks the stored version (one primary-key read) and
+ * re-reads a copy another node has changed, and writes only succeed against the version they were based on,
+ * so nodes need no sticky sessions: a node never serves a cart older than the last flushed one and never
+ * overwrites a newer row. When two nodes change one cart within a flush interval, the first flush wins and
+ * the other node takes the stored cart over. Deletes (checkout, clear) are written through as an empty row,
+ * so neither an in-flight flush nor another node can bring the old cart back. Copies idle for
+ * app.cart.store.idle-timeout are dropped. Anonymous carts only live in memory until they go idle.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jdbc", matchIfMissing = true)
+@Slf4j
+public class JdbcCartStore implements ICartStore {
+// Content only when the stored version differs from the one passed in
+private static final String SELECT_SQL =
+        "SELECT version, CASE WHEN version = ? THEN NULL ELSE content END FROM cart WHERE cart_key = ?";
+private static final String UPDATE_SQL =
+        "UPDATE cart SET content = ?, version = ?, updated_at = ? WHERE cart_key = ? AND version = ?";
+private static final String INSERT_SQL =
+        "INSERT INTO cart (cart_key, content, version, updated_at) VALUES (?, ?, 1, ?)";
+private static final String CLEAR_SQL =
+        "UPDATE cart SET content = ?, version = version + 1, updated_at = ? WHERE cart_key = ?";
+// Stored for an emptied cart; the row stays, so its version keeps counting
+private static final byte[] EMPTY = new byte[0];
+private final JdbcTemplate jdbcTemplate;
+private final Duration flushInterval;
+private final Duration idleTimeout;
+private final ConcurrentMap<String, Slot> carts = new ConcurrentHashMap<>();
+private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+// Being written by the flusher, which settles their versions itself
+private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+private ScheduledExecutorService flusher;
+/**
+ * Encoded cart (null when empty), the stored version it is based on (0: no row) and when a request last used it
+ */
+private record Slot(byte[] content, long version, long touchedAt) {
+    Slot touch() {
+        return new Slot(content, version, System.currentTimeMillis());
+    }
+}
+/**
+ * A dirty cart as the flusher read it
+ */
+private record Write(String key, byte[] content, long baseVersion) {
+}
+public JdbcCartStore(JdbcTemplate jdbcTemplate,
+                     @Value("${app.cart.store.flush-interval:5s}") Duration flushInterval,
+                     @Value("${app.cart.store.idle-timeout:10m}") Duration idleTimeout) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.flushInterval = flushInterval;
+    this.idleTimeout = idleTimeout;
+}
+@PostConstruct
+public void start() {
+    flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("cart-flush").daemon().factory());
+    flusher.scheduleWithFixedDelay(this::flushQuietly,
+            flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    log.info("JDBC cart store started: flushInterval={}, idleTimeout={}", flushInterval, idleTimeout);
+}
+/**
+ * Runs before the DataSource is closed, so the last buffered changes still reach the table
+ */
+@PreDestroy
+public void stop() throws InterruptedException {
+    flusher.shutdown();
+    flusher.awaitTermination(flushInterval.toMillis() + 5_000, TimeUnit.MILLISECONDS);
+    flush();
+}
+@Override
+public Cart load(String key) {
+    refresh(key);
+    Slot slot = carts.compute(key, (k, current) -> current == null ? new Slot(null, 0, System.currentTimeMillis()) : current.touch());
+    return slot.content() == null ? new Cart() : CartCodec.decode(slot.content());
+}
+@Override
+public void save(String key, Cart cart) {
+    refresh(key);
+    byte[] content = cart.isEmpty() ? null : CartCodec.encode(cart);
+    carts.compute(key, (k, current) -> new Slot(content, current == null ? 0 : current.version(), System.currentTimeMillis()));
+    markDirty(key);
+}
+@Override
+public void delete(String key) {
+    if (!isPersistent(key)) {
+        carts.put(key, new Slot(null, 0, System.currentTimeMillis()));
+        return;
+    }
+    Timestamp now = new Timestamp(System.currentTimeMillis());
+    if (jdbcTemplate.update(CLEAR_SQL, EMPTY, now, key) == 0) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, key, EMPTY, now);
+        } catch (DuplicateKeyException e) {
+            // A flush inserted the cart meanwhile
+            jdbcTemplate.update(CLEAR_SQL, EMPTY, now, key);
+        }
+    }
+    long version = readStored(key, -1).version();
+    carts.compute(key, (k, current) -> {
+        dirty.remove(key);
+        return new Slot(null, version, System.currentTimeMillis());
+    });
+}
+@Override
+public Cart update(String key, Consumer<Cart> change) {
+    refresh(key);
+    Cart[] result = new Cart[1];
+    carts.compute(key, (k, current) -> {
+        byte[] content = current == null ? null : current.content();
+        Cart cart = content == null ? new Cart() : CartCodec.decode(content);
+        change.accept(cart);
+        result[0] = cart;
+        return new Slot(cart.isEmpty() ? null : CartCodec.encode(cart), current == null ? 0 : current.version(),
+                System.currentTimeMillis());
+    });
+    markDirty(key);
+    return result[0];
+}
+@Override
+public long count() {
+    return carts.values().stream().filter(slot -> slot.content() != null).count();
+}
+/**
+ * Write every cart changed since the last flush: one conditional batch for carts that have a row,
+ * one insert per cart seen for the first time
+ */
+public void flush() {
+    if (dirty.isEmpty()) {
+        evictIdle();
+        return;
+    }
+    List<Write> updates = new ArrayList<>();
+    List<Write> inserts = new ArrayList<>();
+    for (var it = dirty.iterator(); it.hasNext(); ) {
+        String key = it.next();
+        inFlight.add(key);
+        // Taken off before reading, so a change racing with this flush marks the key again
+        it.remove();
+        Slot slot = carts.get(key);
+        if (slot == null) {
+            inFlight.remove(key);
+        } else if (slot.version() > 0) {
+            updates.add(new Write(key, slot.content(), slot.version()));
+        } else if (slot.content() != null) {
+            inserts.add(new Write(key, slot.content(), 0));
+        } else {
+            // Emptied before it was ever stored
+            inFlight.remove(key);
+        }
+    }
+    int conflicts = 0;
+    try {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (!updates.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates, updates.size(), (ps, write) -> {
+                ps.setBytes(1, write.content() == null ? EMPTY : write.content());
+                ps.setLong(2, write.baseVersion() + 1);
+                ps.setTimestamp(3, now);
+                ps.setString(4, write.key());
+                ps.setLong(5, write.baseVersion());
+            });
+            for (int i = 0; i < updates.size(); i++) {
+                int count = counts[0][i];
+                conflicts += settle(updates.get(i), count > 0 || count == Statement.SUCCESS_NO_INFO);
+            }
+        }
+        for (Write insert : inserts) {
+            boolean inserted;
+            try {
+                jdbcTemplate.update(INSERT_SQL, insert.key(), insert.content(), now);
+                inserted = true;
+            } catch (DuplicateKeyException e) {
+                inserted = false;
+            }
+            conflicts += settle(insert, inserted);
+        }
+        log.debug("Carts flushed: updated={}, inserted={}, conflicts={}", updates.size(), inserts.size(), conflicts);
+    } catch (DataAccessException e) {
+        // Whatever was not settled yet is written again next time
+        for (Write write : updates) {
+            if (inFlight.remove(write.key())) {
+                dirty.add(write.key());
+            }
+        }
+        for (Write write : inserts) {
+            if (inFlight.remove(write.key())) {
+                dirty.add(write.key());
+            }
+        }
+        throw e;
+    }
+    evictIdle();
+}
+/**
+ * After a write: move the copy to the version just stored, or on a conflict take the stored cart over.
+ * Either way only if the copy is still based on the version the write was
+ *
+ * @return 1 for a conflict, else 0
+ */
+private int settle(Write write, boolean written) {
+    try {
+        if (written) {
+            carts.computeIfPresent(write.key(), (k, slot) -> slot.version() == write.baseVersion()
+                    ? new Slot(slot.content(), write.baseVersion() + 1, slot.touchedAt()) : slot);
+            return 0;
+        }
+        Slot stored = readStored(write.key(), -1);
+        carts.computeIfPresent(write.key(), (k, slot) -> {
+            if (slot.version() != write.baseVersion()) {
+                return slot;
+            }
+            dirty.remove(k);
+            return new Slot(stored.content(), stored.version(), slot.touchedAt());
+        });
+        log.info("Cart {} was changed elsewhere since version {}, keeping the stored version {}",
+                write.key(), write.baseVersion(), stored.version());
+        return 1;
+    } finally {
+        inFlight.remove(write.key());
+    }
+}
+private void flushQuietly() {
+    try {
+        flush();
+    } catch (RuntimeException e) {
+        log.warn("Cart flush failed, will retry: pending={}", dirty.size(), e);
+    }
+}
+private void evictIdle() {
+    long cutoff = System.currentTimeMillis() - idleTimeout.toMillis();
+    // Conditional on the slot itself, so a cart changed meanwhile is kept
+    carts.entrySet().removeIf(entry -> entry.getValue().touchedAt() < cutoff
+            && !dirty.contains(entry.getKey()) && !inFlight.contains(entry.getKey()));
+}
+private void markDirty(String key) {
+    if (isPersistent(key)) {
+        dirty.add(key);
+    }
+}
+/**
+ * Bring the copy up to the stored version: the whole row on first sight of a key, otherwise only the
+ * version unless another node wrote since. The query runs outside the map so other carts never wait on it.
+ * A copy with unflushed changes that another node overtook is replaced; the stored cart wins.
+ */
+private void refresh(String key) {
+    if (!isPersistent(key)) {
+        return;
+    }
+    Slot known = carts.get(key);
+    if (known != null && inFlight.contains(key)) {
+        return;
+    }
+    long knownVersion = known == null ? -1 : known.version();
+    Slot stored = readStored(key, knownVersion);
+    if (stored.version() == knownVersion) {
+        return;
+    }
+    carts.compute(key, (k, current) -> {
+        if (current != null && (current.version() != knownVersion || inFlight.contains(k))) {
+            return current;
+        }
+        if (current != null) {
+            dirty.remove(k);
+        }
+        return new Slot(stored.content(), stored.version(), System.currentTimeMillis());
+    });
+}
+/**
+ * Stored version (0 without a row) and, if it is not knownVersion, the stored content (null when empty)
+ */
+private Slot readStored(String key, long knownVersion) {
+    List<Slot> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+        byte[] content = rs.getBytes(2);
+        return new Slot(content == null || content.length == 0 ? null : content, rs.getLong(1), 0);
+    }, knownVersion, key);
+    return rows.isEmpty() ? new Slot(null, 0, 0) : rows.get(0);
+}
+private static boolean isPersistent(String key) {
+    return key.startsWith(USER_KEY_PREFIX);
+}
+}
@@ -0,0 +1,251 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.IItemInvoiceRepository;
+import fit.hutech.spring.utils.SpaceSaving;
+import fit.hutech.spring.viewmodels.BestSellerVm;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Best sellers over sliding 1h, 24h and 7d windows without querying the invoices.
+ * Each window is a ring of time buckets holding a Space-Saving summary of app.bestsellers.capacity
+ * books, so memory stays bounded however much is sold; a window covers its buckets, i.e. it slides
+ * in bucket steps. The ranked list is cached until the bucket changes, a book is edited, or a sale
+ * is older than app.bestsellers.refresh-interval, so a busy checkout does not re-rank on every read.
+ * Book details are cached by id for the current {@link CatalogVersions catalog version}, so a refresh
+ * only queries books new to the ranking. Fed after each checkout commits and loaded from item_invoice on startup.
+ */
+@Component
+@Slf4j
+public class BestSellerTracker {
+    public static final int MAX_LIMIT = 50;
+    // Enough for every window's ranking plus some churn before the generation is dropped
+    private static final int MAX_CACHED_BOOKS = 4 * MAX_LIMIT * 3;
+
+    public enum Window {
+        HOUR("1h", Duration.ofHours(1), Duration.ofMinutes(5)),
+        DAY("24h", Duration.ofDays(1), Duration.ofHours(1)),
+        WEEK("7d", Duration.ofDays(7), Duration.ofHours(6));
+
+        private final String label;
+        private final Duration length;
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(String label, Duration length, Duration bucket) {
+            this.label = label;
+            this.length = length;
+            this.bucketMillis = bucket.toMillis();
+            this.buckets = (int) (length.toMillis() / bucketMillis);
+        }
+
+        public String label() {
+            return label;
+        }
+
+        /**
+         * @throws IllegalArgumentException for anything but 1h, 24h or 7d
+         */
+        public static Window fromLabel(String label) {
+            return Arrays.stream(values())
+                    .filter(window -> window.label.equalsIgnoreCase(label))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Window must be one of 1h, 24h, 7d"));
+        }
+    }
+
+    private final IBookRepository bookRepository;
+    private final IItemInvoiceRepository itemInvoiceRepository;
+    private final CatalogVersions catalogVersions;
+    private final int capacity;
+    private final long refreshMillis;
+    private final Map<Window, Ring> rings = new EnumMap<>(Window.class);
+    private final Map<Window, Snapshot> snapshots = new ConcurrentHashMap<>();
+    // Bumped on every change, so a cached ranking knows it is stale
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Details> details = new AtomicReference<>(new Details(-1));
+
+    private static final class Ring {
+        private final SpaceSaving[] summaries;
+        private final long[] epochs;
+
+        private Ring(int buckets, int capacity) {
+            summaries = new SpaceSaving[buckets];
+            epochs = new long[buckets];
+            for (int i = 0; i < buckets; i++) {
+                summaries[i] = new SpaceSaving(capacity);
+                epochs[i] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private record Snapshot(long version, long epoch, long catalogVersion, long builtAt, List<BestSellerVm> top) {
+    }
+
+    /**
+     * Book details as of one catalog version; empty for a book that no longer exists
+     */
+    private record Details(long catalogVersion, Map<Long, Optional<BookGetVm>> books) {
+        Details(long catalogVersion) {
+            this(catalogVersion, new ConcurrentHashMap<>());
+        }
+    }
+
+    private record Ranked(long bookId, long units) {
+    }
+
+    public BestSellerTracker(IBookRepository bookRepository, IItemInvoiceRepository itemInvoiceRepository,
+                             CatalogVersions catalogVersions,
+                             @Value("${app.bestsellers.capacity:200}") int capacity,
+                             @Value("${app.bestsellers.refresh-interval:5s}") Duration refreshInterval) {
+        this.bookRepository = bookRepository;
+        this.itemInvoiceRepository = itemInvoiceRepository;
+        this.catalogVersions = catalogVersions;
+        this.capacity = Math.max(MAX_LIMIT, capacity);
+        this.refreshMillis = refreshInterval.toMillis();
+        for (Window window : Window.values()) {
+            rings.put(window, new Ring(window.buckets, this.capacity));
+        }
+    }
+
+    /**
+     * Load the last 7 days of sales once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        for (Ring ring : rings.values()) {
+            Arrays.stream(ring.summaries).forEach(SpaceSaving::clear);
+            Arrays.fill(ring.epochs, Long.MIN_VALUE);
+        }
+        long now = System.currentTimeMillis();
+        AtomicLong lines = new AtomicLong();
+        itemInvoiceRepository.forEachLineSince(Instant.ofEpochMilli(now).minus(Window.WEEK.length),
+                (at, bookId, quantity) -> {
+                    add(at.toEpochMilli(), now, bookId, quantity);
+                    lines.incrementAndGet();
+                });
+        version.incrementAndGet();
+        log.info("Best-seller sketches built: lines={}, capacity={}, took={}ms",
+                lines.get(), capacity, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Count a committed checkout: quantities by book id, sold at the given time
+     */
+    public synchronized void record(Instant at, Map<Long, Integer> quantities) {
+        long now = System.currentTimeMillis();
+        quantities.forEach((bookId, quantity) -> add(at.toEpochMilli(), now, bookId, quantity));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Top books of the window by units sold, at most {@link #MAX_LIMIT}
+     */
+    public List<BestSellerVm> top(Window window, int limit) {
+        long now = System.currentTimeMillis();
+        long epoch = now / window.bucketMillis;
+        long catalogVersion = catalogVersions.current();
+        Snapshot snapshot = snapshots.get(window);
+        // Rebuilt when the bucket or the catalog moved on, or when sales are older than the refresh interval
+        if (snapshot == null || snapshot.epoch() != epoch || snapshot.catalogVersion() != catalogVersion
+                || (snapshot.version() != version.get() && now - snapshot.builtAt() >= refreshMillis)) {
+            long current = version.get();
+            // Book details are looked up outside the lock; concurrent refreshes just do it twice
+            snapshot = new Snapshot(current, epoch, catalogVersion, now, resolve(rank(window, epoch), catalogVersion));
+            snapshots.put(window, snapshot);
+        }
+        List<BestSellerVm> top = snapshot.top();
+        return top.subList(0, Math.clamp(limit, 0, top.size()));
+    }
+
+    private void add(long at, long now, long bookId, int quantity) {
+        for (Window window : Window.values()) {
+            long epoch = at / window.bucketMillis;
+            long nowEpoch = now / window.bucketMillis;
+            if (epoch <= nowEpoch - window.buckets || epoch > nowEpoch) {
+                continue;
+            }
+            Ring ring = rings.get(window);
+            int slot = (int) Math.floorMod(epoch, (long) window.buckets);
+            if (ring.epochs[slot] != epoch) {
+                if (ring.epochs[slot] > epoch) {
+                    // The slot already holds a newer bucket; this sale is older than the window
+                    continue;
+                }
+                ring.summaries[slot].clear();
+                ring.epochs[slot] = epoch;
+            }
+            ring.summaries[slot].add(bookId, quantity);
+        }
+    }
+
+    private synchronized List<Ranked> rank(Window window, long epoch) {
+        Ring ring = rings.get(window);
+        Map<Long, Long> units = new HashMap<>();
+        for (int i = 0; i < ring.summaries.length; i++) {
+            if (ring.epochs[i] > epoch - window.buckets && ring.epochs[i] <= epoch) {
+                ring.summaries[i].forEach((bookId, count, error) -> units.merge(bookId, count, Long::sum));
+            }
+        }
+        return units.entrySet().stream()
+                .map(entry -> new Ranked(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingLong(Ranked::units).reversed().thenComparingLong(Ranked::bookId))
+                .limit(MAX_LIMIT)
+                .toList();
+    }
+
+    /**
+     * Attach book details, querying only the books not cached for this catalog version
+     */
+    private List<BestSellerVm> resolve(List<Ranked> ranked, long catalogVersion) {
+        if (ranked.isEmpty()) {
+            return List.of();
+        }
+        Details cached = details.updateAndGet(known -> known.catalogVersion() != catalogVersion
+                || known.books().size() > MAX_CACHED_BOOKS ? new Details(catalogVersion) : known);
+        List<Long> missing = ranked.stream()
+                .map(Ranked::bookId)
+                .filter(id -> !cached.books().containsKey(id))
+                .toList();
+        Map<Long, BookGetVm> books = new HashMap<>();
+        if (!missing.isEmpty()) {
+            books.putAll(bookRepository.findBookVmsByIds(missing).stream()
+                    .collect(Collectors.toMap(BookGetVm::id, Function.identity())));
+            // A write committed during the query may not be in these rows; use them but do not keep them
+            if (catalogVersions.current() == catalogVersion) {
+                missing.forEach(id -> cached.books().put(id, Optional.ofNullable(books.get(id))));
+            }
+        }
+        List<BestSellerVm> top = new ArrayList<>(ranked.size());
+        for (Ranked entry : ranked) {
+            Optional<BookGetVm> book = books.containsKey(entry.bookId())
+                    ? Optional.of(books.get(entry.bookId()))
+                    : cached.books().getOrDefault(entry.bookId(), Optional.empty());
+            // Deleted books drop out
+            book.ifPresent(vm -> top.add(BestSellerVm.from(vm, entry.units())));
+        }
+        return List.copyOf(top);
+    }
+}
@@ -0,0 +1,448 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Category;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.utils.CsvRecordReader;
+import fit.hutech.spring.viewmodels.BookImportErrorVm;
+import fit.hutech.spring.viewmodels.BookImportRow;
+import fit.hutech.spring.viewmodels.BookImportStatusVm;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk book import from CSV (the export's columns: title, author, price, category, optional stock)
+ * or NDJSON (BookImportRow objects). The upload is spooled to a temp file and imported in the
+ * background, one job at a time, in app.books.import.batch-size chunks: category names of a chunk
+ * are resolved in one query, its rows are checked against Book's Bean Validation constraints on
+ * app.books.import.parallelism threads while the previous chunk is inserted as one JDBC batch.
+ * Rejected rows are reported with their row number; the rest are imported. Each committed chunk
+ * is indexed for search and moves the catalog version on right away, so listings, ETags and
+ * cached tables show an import as it progresses.
+ */
+@Service
+@Slf4j
+public class BookImportService {
+    private static final int MAX_JOBS = 20;
+    private static final int ERRORS_IN_STATUS = 100;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public enum State {
+        QUEUED, RUNNING, DONE, FAILED
+    }
+
+    private final IBookRepository bookRepository;
+    private final ICategoryRepository categoryRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final CatalogVersions catalogVersions;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final ForkJoinPool validationPool;
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("book-import").daemon().factory());
+    // Insertion ordered, so the oldest finished jobs are forgotten first
+    private final Map<String, ImportJob> jobs = new LinkedHashMap<>();
+
+    public BookImportService(IBookRepository bookRepository, ICategoryRepository categoryRepository,
+                             BookSearchIndex bookSearchIndex, CatalogVersions catalogVersions, Validator validator, ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.books.import.batch-size:1000}") int batchSize,
+                             @Value("${app.books.import.parallelism:0}") int parallelism) {
+        this.bookRepository = bookRepository;
+        this.categoryRepository = categoryRepository;
+        this.bookSearchIndex = bookSearchIndex;
+        this.catalogVersions = catalogVersions;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = Math.max(1, batchSize);
+        this.validationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        runner.shutdownNow();
+        validationPool.shutdownNow();
+    }
+
+    /**
+     * Spool the upload and queue it; the returned status carries the id to poll
+     */
+    public BookImportStatusVm submit(InputStream body, Format format) throws IOException {
+        Path spool = Files.createTempFile("book-import", "." + format.name().toLowerCase(Locale.ROOT));
+        try {
+            Files.copy(body, spool, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(spool);
+            throw e;
+        }
+        var job = new ImportJob(UUID.randomUUID().toString(), format, spool,
+                Files.createTempFile("book-import", ".errors.csv"));
+        synchronized (jobs) {
+            forgetFinishedJobs();
+            jobs.put(job.id, job);
+        }
+        runner.execute(() -> run(job));
+        log.info("Book import queued: id={}, format={}, bytes={}", job.id, format, Files.size(spool));
+        return job.status();
+    }
+
+    public Optional<BookImportStatusVm> getStatus(String id) {
+        return findJob(id).map(ImportJob::status);
+    }
+
+    /**
+     * Every rejected row as CSV (row,error), complete once the job has finished
+     */
+    public Optional<Path> getErrorReport(String id) {
+        return findJob(id).map(job -> job.errorFile);
+    }
+
+    private Optional<ImportJob> findJob(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    private void forgetFinishedJobs() {
+        Iterator<ImportJob> it = jobs.values().iterator();
+        while (jobs.size() >= MAX_JOBS && it.hasNext()) {
+            ImportJob job = it.next();
+            if (job.state == State.DONE || job.state == State.FAILED) {
+                it.remove();
+                try {
+                    Files.deleteIfExists(job.errorFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete import error report: {}", job.errorFile, e);
+                }
+            }
+        }
+    }
+
+    private void run(ImportJob job) {
+        job.start();
+        job.lastIndexedId = bookRepository.findMaxId();
+        try (BufferedReader in = Files.newBufferedReader(job.spool, StandardCharsets.UTF_8);
+             BufferedWriter errors = Files.newBufferedWriter(job.errorFile, StandardCharsets.UTF_8)) {
+            errors.write("row,error\n");
+            RowSource source = job.format == Format.CSV ? csvSource(in) : ndjsonSource(in);
+            Map<String, Long> categories = loadCategories();
+
+            // Validate chunk n+1 while chunk n is being inserted
+            CompletableFuture<List<Outcome>> pending = null;
+            List<ParsedRow> chunk;
+            while (!(chunk = source.read(batchSize)).isEmpty()) {
+                job.rowsRead.addAndGet(chunk.size());
+                resolveCategories(chunk, categories);
+                List<ParsedRow> rows = chunk;
+                var validated = CompletableFuture.supplyAsync(() -> rows.parallelStream()
+                        .map(row -> validate(row, categories))
+                        .toList(), validationPool);
+                if (pending != null) {
+                    insert(job, pending.join(), errors);
+                }
+                pending = validated;
+            }
+            if (pending != null) {
+                insert(job, pending.join(), errors);
+            }
+            job.finish(State.DONE, null);
+        } catch (Exception e) {
+            log.error("Book import failed: id={}, row={}", job.id, job.rowsRead.get(), e);
+            job.finish(State.FAILED, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(job.spool);
+            } catch (IOException e) {
+                log.warn("Could not delete import spool file: {}", job.spool, e);
+            }
+        }
+        log.info("Book import {}: id={}, read={}, imported={}, failed={}, rowsPerSecond={}",
+                job.state, job.id, job.rowsRead.get(), job.rowsImported.get(), job.rowsFailed.get(),
+                Math.round(job.rowsPerSecond()));
+    }
+
+    /**
+     * Insert a validated chunk as one batch; when the database rejects the batch, retry its
+     * rows one by one so only the offending rows are reported
+     */
+    private void insert(ImportJob job, List<Outcome> outcomes, BufferedWriter errors) throws IOException {
+        long importedBefore = job.rowsImported.get();
+        List<Outcome> valid = new ArrayList<>(outcomes.size());
+        for (Outcome outcome : outcomes) {
+            if (outcome.error() != null) {
+                job.reject(outcome.row(), outcome.error(), errors);
+            } else {
+                valid.add(outcome);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    bookRepository.insertAll(valid.stream().map(Outcome::book).toList()));
+            job.rowsImported.addAndGet(valid.size());
+        } catch (DataAccessException batchFailure) {
+            log.warn("Book import batch rejected, retrying row by row: id={}", job.id, batchFailure);
+            for (Outcome outcome : valid) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> bookRepository.insertAll(List.of(outcome.book())));
+                    job.rowsImported.incrementAndGet();
+                } catch (DataAccessException e) {
+                    job.reject(outcome.row(), "Rejected by the database: "
+                            + NestedExceptionUtils.getMostSpecificCause(e).getMessage(), errors);
+                }
+            }
+        }
+        if (job.rowsImported.get() > importedBefore) {
+            job.lastIndexedId = bookSearchIndex.indexBooksAfter(job.lastIndexedId);
+            catalogVersions.booksAdded();
+        }
+    }
+
+    private Outcome validate(ParsedRow parsed, Map<String, Long> categories) {
+        if (parsed.error() != null) {
+            return new Outcome(parsed.row(), null, parsed.error());
+        }
+        BookImportRow row = parsed.data();
+        Category category = null;
+        if (row.category() != null && !row.category().isBlank()) {
+            Long categoryId = categories.get(BookSearchIndex.normalize(row.category()));
+            if (categoryId == null) {
+                return new Outcome(parsed.row(), null, "Unknown category: " + row.category());
+            }
+            category = Category.builder().id(categoryId).build();
+        }
+        Book book = Book.builder()
+                .title(row.title() == null ? null : row.title().trim())
+                .author(row.author() == null ? null : row.author().trim())
+                .price(row.price())
+                .stock(row.stock())
+                .category(category)
+                .build();
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (!violations.isEmpty()) {
+            return new Outcome(parsed.row(), null, violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return new Outcome(parsed.row(), book, null);
+    }
+
+    /**
+     * Category ids by normalized name (case and accents folded like the MySQL collation); lowest id wins
+     */
+    private Map<String, Long> loadCategories() {
+        Map<String, Long> categories = new ConcurrentHashMap<>();
+        categoryRepository.findAll().stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .forEach(category -> categories.putIfAbsent(BookSearchIndex.normalize(category.getName()), category.getId()));
+        return categories;
+    }
+
+    /**
+     * Look up the chunk's not yet known category names in one query (categories added since the job started)
+     */
+    private void resolveCategories(List<ParsedRow> chunk, Map<String, Long> categories) {
+        Set<String> unknown = chunk.stream()
+                .map(ParsedRow::data)
+                .filter(row -> row != null && row.category() != null && !row.category().isBlank())
+                .map(row -> row.category().trim())
+                .filter(name -> !categories.containsKey(BookSearchIndex.normalize(name)))
+                .collect(Collectors.toSet());
+        if (unknown.isEmpty()) {
+            return;
+        }
+        categoryRepository.findByNameIn(unknown).stream()
+                .sorted(Comparator.comparing(Category::getId))
+                .forEach(category -> categories.putIfAbsent(BookSearchIndex.normalize(category.getName()), category.getId()));
+    }
+
+    private RowSource csvSource(BufferedReader in) throws IOException {
+        var reader = new CsvRecordReader(in);
+        List<String> header = reader.next();
+        if (header == null) {
+            return max -> List.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("title") || !columns.containsKey("author")) {
+            throw new IllegalArgumentException("CSV header must name the title and author columns");
+        }
+        AtomicLong rowNumber = new AtomicLong();
+        return max -> {
+            List<ParsedRow> rows = new ArrayList<>(max);
+            List<String> record;
+            while (rows.size() < max && (record = reader.next()) != null) {
+                long row = rowNumber.incrementAndGet();
+                try {
+                    rows.add(new ParsedRow(row, new BookImportRow(
+                            field(record, columns, "title"),
+                            field(record, columns, "author"),
+                            number(field(record, columns, "price"), Double::valueOf),
+                            field(record, columns, "category"),
+                            number(field(record, columns, "stock"), Integer::valueOf)), null));
+                } catch (NumberFormatException e) {
+                    rows.add(new ParsedRow(row, null, "Not a number: " + e.getMessage()));
+                }
+            }
+            return rows;
+        };
+    }
+
+    private RowSource ndjsonSource(BufferedReader in) {
+        AtomicLong rowNumber = new AtomicLong();
+        return max -> {
+            List<ParsedRow> rows = new ArrayList<>(max);
+            String line;
+            while (rows.size() < max && (line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                long row = rowNumber.incrementAndGet();
+                try {
+                    rows.add(new ParsedRow(row, objectMapper.readValue(line, BookImportRow.class), null));
+                } catch (JacksonException e) {
+                    rows.add(new ParsedRow(row, null, "Invalid JSON: " + e.getOriginalMessage()));
+                }
+            }
+            return rows;
+        };
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size() || record.get(index).isEmpty()) {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private static <T> T number(String value, Function<String, T> parse) {
+        return value == null || value.isBlank() ? null : parse.apply(value.trim());
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        /**
+         * Up to max rows; empty at the end of the input
+         */
+        List<ParsedRow> read(int max) throws IOException;
+    }
+
+    private record ParsedRow(long row, BookImportRow data, String error) {
+    }
+
+    private record Outcome(long row, Book book, String error) {
+    }
+
+    private static final class ImportJob {
+        private final String id;
+        private final Format format;
+        private final Path spool;
+        private final Path errorFile;
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong rowsFailed = new AtomicLong();
+        private final List<BookImportErrorVm> firstErrors = new ArrayList<>();
+        private volatile State state = State.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String message;
+        // Books up to this id are in the search index; only touched by the runner thread
+        private long lastIndexedId;
+
+        private ImportJob(String id, Format format, Path spool, Path errorFile) {
+            this.id = id;
+            this.format = format;
+            this.spool = spool;
+            this.errorFile = errorFile;
+        }
+
+        void start() {
+            startedAt = Instant.now();
+            state = State.RUNNING;
+        }
+
+        void finish(State finalState, String failure) {
+            finishedAt = Instant.now();
+            message = failure;
+            state = finalState;
+        }
+
+        void reject(long row, String error, BufferedWriter errors) throws IOException {
+            rowsFailed.incrementAndGet();
+            synchronized (firstErrors) {
+                if (firstErrors.size() < ERRORS_IN_STATUS) {
+                    firstErrors.add(new BookImportErrorVm(row, error));
+                }
+            }
+            errors.write(row + ",\"" + error.replace("\"", "\"\"") + "\"\n");
+        }
+
+        double rowsPerSecond() {
+            if (startedAt == null) {
+                return 0;
+            }
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = Math.max(0.001, Duration.between(startedAt, end).toMillis() / 1000.0);
+            return rowsRead.get() / seconds;
+        }
+
+        BookImportStatusVm status() {
+            List<BookImportErrorVm> errors;
+            synchronized (firstErrors) {
+                errors = List.copyOf(firstErrors);
+            }
+            return new BookImportStatusVm(id, state.name(), format.name(), rowsRead.get(), rowsImported.get(),
+                    rowsFailed.get(), Math.round(rowsPerSecond() * 10) / 10.0, startedAt, finishedAt, message, errors);
+        }
+    }
+}
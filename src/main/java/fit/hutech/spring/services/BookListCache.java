@@ -0,0 +1,114 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.utils.ReplicaRoutingDataSource;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rendered book table and pagination of /books (book/list-table.html) per page, size, sort
+ * and ADMIN flag, valid for one {@link CatalogVersions catalog version}: every committed
+ * BookService, CategoryService or import write moves the version on, and the next request
+ * drops the whole generation. A hit runs no query and no template; only the requester's CSRF
+ * token is filled in. At most app.books.list-cache.max-entries tables are kept per generation.
+ * Tables are read from the primary: a lagging replica would otherwise get a table older than
+ * its version cached until the next write.
+ */
+@Component
+public class BookListCache {
+    private static final String TEMPLATE = "book/list-table";
+    private static final Set<String> FRAGMENT = Set.of("table");
+    private static final String CSRF_PARAMETER = "_csrf";
+
+    private final BookService bookService;
+    private final CatalogVersions catalogVersions;
+    private final ITemplateEngine templateEngine;
+    private final JakartaServletWebApplication webApplication;
+    private final int maxEntries;
+    // Rendered in place of the CSRF token; random, so no book text can contain it
+    private final String csrfSlot = "csrf-" + UUID.randomUUID();
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(-1));
+
+    private record Key(int pageNo, int pageSize, String sortBy, boolean admin) {
+    }
+
+    private record Generation(long version, Map<Key, String> tables) {
+        Generation(long version) {
+            this(version, new ConcurrentHashMap<>());
+        }
+    }
+
+    public BookListCache(BookService bookService, CatalogVersions catalogVersions,
+                         ITemplateEngine templateEngine, ServletContext servletContext,
+                         @Value("${app.books.list-cache.max-entries:1000}") int maxEntries) {
+        this.bookService = bookService;
+        this.catalogVersions = catalogVersions;
+        this.templateEngine = templateEngine;
+        this.webApplication = JakartaServletWebApplication.buildApplication(servletContext);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * The table HTML for the current user, from the cache or rendered (and cached) now
+     */
+    public String render(int pageNo, int pageSize, String sortBy,
+                         HttpServletRequest request, HttpServletResponse response) {
+        // Read before querying: a table rendered while a write commits is kept under the old version only
+        long version = catalogVersions.current();
+        Generation current = generation.updateAndGet(known -> known.version() < version ? new Generation(version) : known);
+        Key key = new Key(pageNo, pageSize, sortBy, isAdmin());
+        String html = current.tables().get(key);
+        if (html == null) {
+            html = renderTable(key, request, response);
+            if (current.version() == version && current.tables().size() < maxEntries) {
+                current.tables().putIfAbsent(key, html);
+            }
+        }
+        CsrfToken token = (CsrfToken) request.getAttribute(CsrfToken.class.getName());
+        return html.replace(csrfSlot, token != null ? HtmlUtils.htmlEscape(token.getToken()) : "");
+    }
+
+    private String renderTable(Key key, HttpServletRequest request, HttpServletResponse response) {
+        long totalBooks = ReplicaRoutingDataSource.onPrimary(bookService::countAllBooks);
+        var books = ReplicaRoutingDataSource.onPrimary(
+                () -> bookService.getAllBookVms(key.pageNo(), key.pageSize(), key.sortBy()));
+        // Cached HTML must not carry this request's ;jsessionid
+        var exchange = webApplication.buildExchange(request, new HttpServletResponseWrapper(response) {
+            @Override
+            public String encodeURL(String url) {
+                return url;
+            }
+        });
+        var context = new WebContext(exchange, request.getLocale());
+        context.setVariable("books", books);
+        context.setVariable("currentPage", key.pageNo());
+        context.setVariable("totalPages", (int) Math.ceil((double) totalBooks / key.pageSize()));
+        context.setVariable("csrfParameter", CSRF_PARAMETER);
+        context.setVariable("csrfSlot", csrfSlot);
+        return templateEngine.process(TEMPLATE, FRAGMENT, context);
+    }
+
+    private static boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch("ADMIN"::equals);
+    }
+}
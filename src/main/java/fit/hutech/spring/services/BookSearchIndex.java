@@ -0,0 +1,386 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Category;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.utils.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory trigram index over book title, author and category name.
+ * Replaces the LIKE '%keyword%' scan: candidates come from posting list
+ * intersection and are verified against the normalized text before ranking.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BookSearchIndex {
+    private static final int GRAM_SIZE = 3;
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int CATEGORY_WEIGHT = 1;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private final IBookRepository bookRepository;
+    private final ICategoryRepository categoryRepository;
+
+    private final GramIndex bookGrams = new GramIndex();
+    private final GramIndex categoryGrams = new GramIndex();
+    private final Map<Long, Entry> books = new HashMap<>();
+    private final Map<Long, String> categories = new HashMap<>();
+    private final Map<Long, Set<Long>> booksByCategory = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record Entry(String title, String author, Long categoryId) {
+    }
+
+    private record Hit(Long id, int score) {
+    }
+
+    /**
+     * Trigram posting lists, plus the grams containing each 1- and 2-char fragment so a keyword
+     * shorter than a gram is looked up instead of scanning every gram
+     */
+    private static final class GramIndex {
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private final Map<String, Set<String>> fragments = new HashMap<>();
+
+        void add(String text, Long id) {
+            for (String gram : grams(pad(text))) {
+                postings.computeIfAbsent(gram, k -> {
+                    fragmentsOf(gram).forEach(fragment ->
+                            fragments.computeIfAbsent(fragment, f -> new HashSet<>()).add(gram));
+                    return new HashSet<>();
+                }).add(id);
+            }
+        }
+
+        void remove(String text, Long id) {
+            if (text == null) {
+                return;
+            }
+            for (String gram : grams(pad(text))) {
+                Set<Long> ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    postings.remove(gram);
+                    for (String fragment : fragmentsOf(gram)) {
+                        Set<String> owners = fragments.get(fragment);
+                        if (owners != null && owners.remove(gram) && owners.isEmpty()) {
+                            fragments.remove(fragment);
+                        }
+                    }
+                }
+            }
+        }
+
+        Set<Long> candidates(String needle) {
+            if (needle.length() < GRAM_SIZE) {
+                // Every field is padded, so a short keyword always sits inside some gram
+                Set<Long> union = new HashSet<>();
+                fragments.getOrDefault(needle, Set.of()).forEach(gram -> union.addAll(postings.get(gram)));
+                return union;
+            }
+
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String gram : grams(needle)) {
+                Set<Long> ids = postings.get(gram);
+                if (ids == null) {
+                    return Set.of();
+                }
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+
+        int size() {
+            return postings.size();
+        }
+
+        void clear() {
+            postings.clear();
+            fragments.clear();
+        }
+
+        private static Set<String> fragmentsOf(String gram) {
+            Set<String> result = new HashSet<>();
+            for (int length = 1; length < GRAM_SIZE; length++) {
+                for (int i = 0; i + length <= gram.length(); i++) {
+                    result.add(gram.substring(i, i + length));
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Build the whole index from the database once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            bookGrams.clear();
+            categoryGrams.clear();
+            books.clear();
+            categories.clear();
+            booksByCategory.clear();
+
+            categoryRepository.findAll().forEach(this::putCategoryLocked);
+
+            long lastId = 0;
+            List<Book> batch;
+            do {
+                batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                for (Book book : batch) {
+                    putBookLocked(book);
+                    lastId = book.getId();
+                }
+            } while (batch.size() == REBUILD_BATCH_SIZE);
+            log.info("Book search index built: books={}, grams={}, took={}ms",
+                    books.size(), bookGrams.size(), System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index every book with an id above lastId, e.g. rows a bulk import wrote with JDBC.
+     * The lock is taken per batch, so searches keep running in between.
+     *
+     * @return the highest id indexed, or lastId when there was none
+     */
+    public long indexBooksAfter(long lastId) {
+        List<Book> batch;
+        do {
+            batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            lock.writeLock().lock();
+            try {
+                for (Book book : batch) {
+                    removeBookLocked(book.getId());
+                    putBookLocked(book);
+                    lastId = book.getId();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        return lastId;
+    }
+
+    /**
+     * The best limit book ids ranked by where the keyword matched (title > author > category), ties by id
+     */
+    public List<Long> search(String keyword, int limit) {
+        String needle = normalize(keyword);
+        if (needle.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : bookGrams.candidates(needle)) {
+                Entry entry = books.get(id);
+                if (entry == null) {
+                    continue;
+                }
+                int score = 0;
+                if (entry.title().contains(needle)) {
+                    score += entry.title().startsWith(needle) ? TITLE_WEIGHT + 1 : TITLE_WEIGHT;
+                }
+                if (entry.author().contains(needle)) {
+                    score += AUTHOR_WEIGHT;
+                }
+                if (score > 0) {
+                    scores.put(id, score);
+                }
+            }
+            for (Long categoryId : categoryGrams.candidates(needle)) {
+                String name = categories.get(categoryId);
+                if (name == null || !name.contains(needle)) {
+                    continue;
+                }
+                booksByCategory.getOrDefault(categoryId, Set.of())
+                        .forEach(id -> scores.merge(id, CATEGORY_WEIGHT, Integer::sum));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Bounded min-heap: the head is the worst of the best limit hits so far
+        Comparator<Hit> rank = Comparator.comparingInt(Hit::score).reversed().thenComparing(Hit::id);
+        PriorityQueue<Hit> best = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, rank.reversed());
+        scores.forEach((id, score) -> {
+            best.add(new Hit(id, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        return best.stream().sorted(rank).map(Hit::id).toList();
+    }
+
+    /**
+     * Add or replace a book once the surrounding transaction commits
+     */
+    public void putBook(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Long id = book.getId();
+        String title = book.getTitle();
+        String author = book.getAuthor();
+        Long categoryId = book.getCategory() != null ? book.getCategory().getId() : null;
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeBookLocked(id);
+                putBookLocked(id, title, author, categoryId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove a book once the surrounding transaction commits
+     */
+    public void removeBook(Long id) {
+        if (id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                removeBookLocked(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Add or rename a category once the surrounding transaction commits
+     */
+    public void putCategory(Category category) {
+        if (category == null || category.getId() == null) {
+            return;
+        }
+        Long id = category.getId();
+        String name = category.getName();
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                categoryGrams.remove(categories.remove(id), id);
+                putCategoryLocked(id, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Remove a category and the books cascaded with it once the surrounding transaction commits
+     */
+    public void removeCategory(Long id) {
+        if (id == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                categoryGrams.remove(categories.remove(id), id);
+                Set<Long> orphans = booksByCategory.remove(id);
+                if (orphans != null) {
+                    List.copyOf(orphans).forEach(this::removeBookLocked);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void putBookLocked(Book book) {
+        putBookLocked(book.getId(), book.getTitle(), book.getAuthor(),
+                book.getCategory() != null ? book.getCategory().getId() : null);
+    }
+
+    private void putBookLocked(Long id, String title, String author, Long categoryId) {
+        Entry entry = new Entry(normalize(title), normalize(author), categoryId);
+        books.put(id, entry);
+        bookGrams.add(entry.title(), id);
+        bookGrams.add(entry.author(), id);
+        if (categoryId != null) {
+            booksByCategory.computeIfAbsent(categoryId, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void removeBookLocked(Long id) {
+        Entry entry = books.remove(id);
+        if (entry == null) {
+            return;
+        }
+        bookGrams.remove(entry.title(), id);
+        bookGrams.remove(entry.author(), id);
+        if (entry.categoryId() != null) {
+            Set<Long> ids = booksByCategory.get(entry.categoryId());
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    private void putCategoryLocked(Category category) {
+        putCategoryLocked(category.getId(), category.getName());
+    }
+
+    private void putCategoryLocked(Long id, String name) {
+        String normalized = normalize(name);
+        categories.put(id, normalized);
+        categoryGrams.add(normalized, id);
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static String pad(String text) {
+        return " " + text + " ";
+    }
+
+    /**
+     * Lower-case and strip accents so matching behaves like MySQL's *_ai_ci collations
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D');
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+}
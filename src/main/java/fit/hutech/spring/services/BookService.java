@@ -2,46 +2,117 @@ package fit.hutech.spring.services;
 
 import fit.hutech.spring.entities.Book;
 import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.utils.BookstoreMetrics;
+import fit.hutech.spring.viewmodels.BookCursor;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Path;
 import jakarta.validation.constraints.NotNull;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 @Service
+@Timed("bookstore.service")
 @RequiredArgsConstructor
 @Transactional(isolation = Isolation.SERIALIZABLE,
         rollbackFor = {Exception.class, Throwable.class})
 public class BookService {
-    private final IBookRepository bookRepository;   
+    public static final int MAX_SEARCH_RESULTS = 100;
+
+    private final IBookRepository bookRepository;
+    private final BookSearchIndex bookSearchIndex;
+    private final EntityManager entityManager;
+    private final BookstoreMetrics metrics;
+    private final CatalogVersions catalogVersions;
     
+    @Transactional(readOnly = true)
     public List<Book> getAllBooks(Integer pageNo, Integer pageSize, String sortBy) {
         Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(sortBy));
-        return bookRepository.findAll(pageable).getContent();
+        return bookRepository.findAllBy(pageable).getContent();
+    }
+
+    /**
+     * Same page as {@link #getAllBooks} read straight into view models (book and category name in one statement)
+     */
+    @Transactional(readOnly = true)
+    public List<BookGetVm> getAllBookVms(Integer pageNo, Integer pageSize, String sortBy) {
+        Pageable pageable = PageRequest.of(pageNo, pageSize, Sort.by(sortBy));
+        return bookRepository.findAllBookVms(pageable).getContent();
+    }
+
+    /**
+     * Keyset page: rows strictly after the cursor ordered by (sortBy, id), no OFFSET and no COUNT
+     */
+    @Transactional(readOnly = true)
+    public List<Book> getBooksAfter(BookCursor cursor, int limit, String sortBy) {
+        Sort sort = "id".equals(sortBy) ? Sort.by("id") : Sort.by(sortBy).and(Sort.by("id"));
+        Specification<Book> spec = cursor == null ? Specification.unrestricted() : seekAfter(cursor);
+        return bookRepository.findBy(spec, query -> query.sortBy(sort).limit(limit).project("category").all());
     }
     
-    public List<Book> searchBook(String keyword) {
-        return bookRepository.searchBook(keyword);
+    /**
+     * The best limit matches in rank order, at most MAX_SEARCH_RESULTS so the id IN list stays small
+     */
+    @Transactional(readOnly = true)
+    public List<BookGetVm> searchBookVms(String keyword, int limit) {
+        List<Long> ids = bookSearchIndex.search(keyword, Math.min(limit, MAX_SEARCH_RESULTS));
+        metrics.recordSearch(ids.size());
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return inRankOrder(ids, bookRepository.findBookVmsByIds(ids), BookGetVm::id);
     }
     
+    /**
+     * Walk the whole catalog forward-only in id order, detaching each book once it has been handed over
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ,
+            rollbackFor = {Exception.class, Throwable.class})
+    public void forEachBook(@NotNull Consumer<Book> action) {
+        try (Stream<Book> books = bookRepository.streamAllBooks()) {
+            books.forEach(book -> {
+                action.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+    
+    @Transactional(readOnly = true)
     public Optional<Book> getBookById(Long id) {
         return bookRepository.findById(id);
     }
     
+    @Transactional(readOnly = true)
     public long countAllBooks() {
         return bookRepository.count();
     }
     
     public void addBook(Book book) {
         bookRepository.save(book);
+        bookSearchIndex.putBook(book);
+        catalogVersions.bookChanged(book.getId());
     }
     
-    public void updateBook(@NotNull Book book) {
+    /**
+     * Save an edited book. stockShown is the stock the edit form displayed: the stock changes by the
+     * difference to book's stock (see IBookStockRepository#editStock), not to the submitted value
+     */
+    public void updateBook(@NotNull Book book, Integer stockShown) {
         Book existingBook = bookRepository.findById(book.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Book not found with id: " + book.getId()));
         existingBook.setTitle(book.getTitle());
@@ -49,9 +120,42 @@ public class BookService {
         existingBook.setPrice(book.getPrice());
         existingBook.setCategory(book.getCategory());
         bookRepository.save(existingBook);
+        bookRepository.editStock(existingBook.getId(), stockShown, book.getStock());
+        bookSearchIndex.putBook(existingBook);
+        catalogVersions.bookChanged(existingBook.getId());
     }
     
     public void deleteBookById(Long id) {
         bookRepository.deleteById(id);
+        bookSearchIndex.removeBook(id);
+        catalogVersions.bookChanged(id);
+    }
+
+    private static <T> List<T> inRankOrder(List<Long> ids, List<T> rows, Function<T, Long> idOf) {
+        Map<Long, T> rowsById = rows.stream()
+                .collect(Collectors.toMap(idOf, Function.identity()));
+        return ids.stream()
+                .map(rowsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Specification<Book> seekAfter(@NotNull BookCursor cursor) {
+        return (root, query, cb) -> {
+            Path<Long> id = root.get("id");
+            if ("id".equals(cursor.sortBy())) {
+                return cb.greaterThan(id, cursor.id());
+            }
+            Path<Comparable> column = root.get(cursor.sortBy());
+            Comparable key = cursor.key();
+            if (key == null) {
+                // NULL keys sort first: finish the NULL block, then every non-NULL key
+                return cb.or(cb.and(cb.isNull(column), cb.greaterThan(id, cursor.id())),
+                        cb.isNotNull(column));
+            }
+            return cb.or(cb.greaterThan(column, key),
+                    cb.and(cb.equal(column, key), cb.greaterThan(id, cursor.id())));
+        };
     }
 }
\ No newline at end of file
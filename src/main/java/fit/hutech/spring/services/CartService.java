@@ -1,92 +1,247 @@
 package fit.hutech.spring.services;
 import fit.hutech.spring.daos.Cart;
 import fit.hutech.spring.daos.Item;
+import fit.hutech.spring.entities.Book;
 import fit.hutech.spring.entities.Invoice;
 import fit.hutech.spring.entities.ItemInvoice;
 import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.ICartStore;
 import fit.hutech.spring.repositories.IInvoiceRepository;
 import fit.hutech.spring.repositories.IItemInvoiceRepository;
+import fit.hutech.spring.utils.BookstoreMetrics;
+import fit.hutech.spring.utils.TransactionUtils;
+import fit.hutech.spring.viewmodels.CartLineVm;
+import fit.hutech.spring.viewmodels.CartOpVm;
+import fit.hutech.spring.viewmodels.CartOpsResultVm;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.constraints.NotNull;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@Timed("bookstore.service")
 @RequiredArgsConstructor
 @Slf4j
 @Transactional(isolation = Isolation.SERIALIZABLE,
         rollbackFor = {Exception.class, Throwable.class})
 public class CartService {
-    private static final String CART_SESSION_KEY = "cart";
+    private static final int MAX_OPS_PER_BATCH = 200;
     private final IInvoiceRepository invoiceRepository;
     private final IItemInvoiceRepository itemInvoiceRepository;
     private final IBookRepository bookRepository;
+    private final BookstoreMetrics metrics;
+    private final ICartStore cartStore;
+    private final SalesRollupService salesRollupService;
+    private final BestSellerTracker bestSellerTracker;
     
+    /**
+     * Detached copy of the stored cart; changes are only kept once passed to {@link #updateCart}
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Cart getCart(@NotNull HttpSession session) {
-        return Optional.ofNullable((Cart) session.getAttribute(CART_SESSION_KEY))
-                .orElseGet(() -> {
-                    Cart cart = new Cart();
-                    session.setAttribute(CART_SESSION_KEY, cart);
-                    log.debug("New cart created for session: {}", session.getId());
-                    return cart;
-                });
+        return cartStore.load(cartKey(session));
     }
     
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void updateCart(@NotNull HttpSession session, Cart cart) {
-        session.setAttribute(CART_SESSION_KEY, cart);
+        cartStore.save(cartKey(session), cart);
+        metrics.recordCartUpdate(cart.size());
         log.debug("Cart updated for session: {}", session.getId());
     }
     
+    /**
+     * Apply a change to the stored cart atomically, so two tabs adding at once both count
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Cart updateCart(@NotNull HttpSession session, @NotNull Consumer<Cart> change) {
+        Cart cart = cartStore.update(cartKey(session), change);
+        metrics.recordCartUpdate(cart.size());
+        log.debug("Cart updated for session: {}", session.getId());
+        return cart;
+    }
+    
+    /**
+     * Apply a batch of cart operations as one update: either every operation is kept or, when one is
+     * invalid, none is. Names and prices of added books come from the database.
+     *
+     * @throws IllegalArgumentException for an empty or oversized batch, a missing book id, a quantity above
+     *                                  {@link Cart#MAX_QUANTITY} or an unknown book
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CartOpsResultVm applyOps(@NotNull HttpSession session, List<CartOpVm> ops) {
+        if (ops == null || ops.isEmpty() || ops.size() > MAX_OPS_PER_BATCH) {
+            throw new IllegalArgumentException("A batch holds 1 to " + MAX_OPS_PER_BATCH + " operations");
+        }
+        for (CartOpVm op : ops) {
+            if (op == null || op.op() == null || op.bookId() == null) {
+                throw new IllegalArgumentException("Every operation needs op and bookId");
+            }
+            if (op.op() != CartOpVm.Op.REMOVE && op.quantity() == null) {
+                throw new IllegalArgumentException("Quantity is required: bookId=" + op.bookId());
+            }
+            if (op.op() == CartOpVm.Op.ADD && op.quantity() <= 0) {
+                throw new IllegalArgumentException("Quantity to add must be positive: bookId=" + op.bookId());
+            }
+            if (op.op() != CartOpVm.Op.REMOVE && op.quantity() > Cart.MAX_QUANTITY) {
+                throw new IllegalArgumentException("Quantity must be at most " + Cart.MAX_QUANTITY + ": bookId=" + op.bookId());
+            }
+        }
+        
+        // Looked up before the cart is locked, in one IN query
+        var addIds = ops.stream()
+                .filter(op -> op.op() == CartOpVm.Op.ADD)
+                .map(CartOpVm::bookId)
+                .collect(Collectors.toSet());
+        Map<Long, Book> books = addIds.isEmpty() ? Map.of() : bookRepository.findAllById(addIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        for (Long id : addIds) {
+            Book book = books.get(id);
+            if (book == null || book.getPrice() == null) {
+                throw new IllegalArgumentException("Book not found or not priced: bookId=" + id);
+            }
+        }
+        
+        Cart cart = updateCart(session, current -> {
+            for (CartOpVm op : ops) {
+                switch (op.op()) {
+                    case ADD -> {
+                        Book book = books.get(op.bookId());
+                        current.addItems(new Item(book.getId(), book.getTitle(), book.getPrice(), op.quantity()));
+                    }
+                    case UPDATE -> current.updateItems(op.bookId(), op.quantity());
+                    case REMOVE -> current.removeItems(op.bookId());
+                }
+            }
+        });
+        
+        List<CartLineVm> changed = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        ops.stream().map(CartOpVm::bookId).distinct().forEach(id -> cart.findItem(id)
+                .ifPresentOrElse(item -> changed.add(CartLineVm.from(item)), () -> removed.add(id)));
+        log.debug("Cart batch applied for session: {}, ops: {}", session.getId(), ops.size());
+        return new CartOpsResultVm(changed, removed, cart.size(), cart.getTotalQuantity(), cart.getTotalPrice());
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS)
     public void removeCart(@NotNull HttpSession session) {
-        session.removeAttribute(CART_SESSION_KEY);
+        cartStore.delete(cartKey(session));
         log.debug("Cart removed for session: {}", session.getId());
     }
     
-    public int getSumQuantity(@NotNull HttpSession session) {
-        return getCart(session).getCartItems().stream()
-                .mapToInt(Item::getQuantity)
-                .sum();
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getSumQuantity(@NotNull HttpSession session) {
+        return getCart(session).getTotalQuantity();
     }
     
+    @Transactional(propagation = Propagation.SUPPORTS)
     public double getSumPrice(@NotNull HttpSession session) {
-        return getCart(session).getCartItems().stream()
-                .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                .sum();
+        return getCart(session).getTotalPrice();
     }
     
+    /**
+     * Check out the session cart. Stock is taken with conditional updates rather than
+     * SERIALIZABLE reads, so checkouts only wait on each other for the books they share.
+     *
+     * @throws OutOfStockException when any line cannot be reserved; nothing is written and the cart is kept
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED,
+            rollbackFor = {Exception.class, Throwable.class})
     public void saveCart(@NotNull HttpSession session) {
         var cart = getCart(session);
-        if (cart.getCartItems().isEmpty()) {
+        if (cart.isEmpty()) {
             log.warn("Attempted to save empty cart for session: {}", session.getId());
             return;
         }
         
+        // One IN query for every book; prices come from the database, not from the session cart
+        var bookIds = cart.getCartItems().stream()
+                .map(Item::getBookId)
+                .collect(Collectors.toSet());
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        
+        List<ItemInvoice> itemInvoices = new ArrayList<>();
+        Map<Long, Integer> reservations = new HashMap<>();
+        Map<Long, Integer> sold = new HashMap<>();
+        double total = 0;
+        for (Item item : cart.getCartItems()) {
+            Book book = books.get(item.getBookId());
+            if (book == null || book.getPrice() == null) {
+                log.warn("Book not found or not priced for item: id={}", item.getBookId());
+                continue;
+            }
+            var itemInvoice = new ItemInvoice();
+            itemInvoice.setQuantity(item.getQuantity());
+            itemInvoice.setPrice(book.getPrice());
+            itemInvoice.setBook(book);
+            itemInvoices.add(itemInvoice);
+            total += book.getPrice() * item.getQuantity();
+            sold.merge(book.getId(), item.getQuantity(), Integer::sum);
+            if (book.getStock() != null) {
+                reservations.merge(book.getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        if (itemInvoices.isEmpty()) {
+            log.warn("No purchasable items left in cart for session: {}", session.getId());
+            return;
+        }
+        
+        Set<Long> shortIds = bookRepository.reserveStock(reservations);
+        if (!shortIds.isEmpty()) {
+            List<String> titles = shortIds.stream()
+                    .sorted()
+                    .map(id -> books.get(id).getTitle())
+                    .toList();
+            log.info("Checkout rejected for session: {}, out of stock: {}", session.getId(), titles);
+            throw new OutOfStockException(titles);
+        }
+        
         var invoice = new Invoice();
         invoice.setInvoiceDate(new Date());
-        invoice.setPrice(getSumPrice(session));
+        invoice.setPrice(total);
         invoiceRepository.save(invoice);
-        log.info("Invoice created with id: {}, totalPrice: {}", invoice.getId(), invoice.getPrice());
-        
-        cart.getCartItems().forEach(item -> {
-            bookRepository.findById(item.getBookId())
-                    .ifPresentOrElse(
-                            book -> {
-                                var itemInvoice = new ItemInvoice();
-                                itemInvoice.setInvoice(invoice);
-                                itemInvoice.setQuantity(item.getQuantity());
-                                itemInvoice.setBook(book);
-                                itemInvoiceRepository.save(itemInvoice);
-                            },
-                            () -> log.warn("Book not found for item: id={}", item.getBookId())
-                    );
-        });
+        itemInvoiceRepository.insertAll(invoice.getId(), itemInvoices);
+        salesRollupService.recordInvoice(invoice, itemInvoices);
+        metrics.recordCheckout(itemInvoices.stream().mapToInt(ItemInvoice::getQuantity).sum(), total);
+        log.info("Invoice created with id: {}, totalPrice: {}, items: {}",
+                invoice.getId(), invoice.getPrice(), itemInvoices.size());
         
-        removeCart(session);
+        // The cart is outside the database now, so only drop it once the invoice is committed
+        String key = cartKey(session);
+        TransactionUtils.afterCommit(() -> cartStore.delete(key));
+        Instant soldAt = invoice.getInvoiceDate().toInstant();
+        TransactionUtils.afterCommit(() -> bestSellerTracker.record(soldAt, sold));
         log.info("Cart saved and cleared for session: {}", session.getId());
     }
+    
+    /**
+     * Carts follow the signed-in user across nodes and new sessions (the session id changes
+     * on login anyway); the session id is only the fallback for anonymous callers
+     */
+    private static String cartKey(HttpSession session) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return ICartStore.USER_KEY_PREFIX + authentication.getName();
+        }
+        return ICartStore.SESSION_KEY_PREFIX + session.getId();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.utils.TransactionUtils;
+import fit.hutech.spring.viewmodels.CategorySnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions behind the book API's ETags, so conditional GETs can be answered with 304 before
+ * any query. The catalog version counts every committed book or category write; the
+ * version column of each book served is remembered until that book changes, for the
+ * app.books.etag-cache.max-entries most recently used books.
+ */
+@Component
+public class CatalogVersions {
+    // Part of every collection tag, so a restarted counter never repeats an old tag
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final Map<Long, Long> bookVersions;
+
+    public CatalogVersions(@Value("${app.books.etag-cache.max-entries:100000}") int maxBooks) {
+        // Access order, so the least recently served book is dropped; it is simply re-read next time
+        this.bookVersions = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxBooks;
+            }
+        });
+    }
+
+    /**
+     * Current catalog version; read it before querying and pass it to {@link #recordBook}
+     */
+    public long current() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Weak tag shared by every book listing at the given catalog version
+     */
+    public String collectionEtag(long version) {
+        return "W/\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Strong tag of a single book: its version column plus the category list it names its category from
+     */
+    public static String bookEtag(Long id, long version, CategorySnapshot categories) {
+        return "\"" + id + "-" + version + "-" + categories.etag().replace("\"", "") + "\"";
+    }
+
+    public OptionalLong bookVersion(Long id) {
+        Long version = bookVersions.get(id);
+        return version == null ? OptionalLong.empty() : OptionalLong.of(version);
+    }
+
+    /**
+     * Remember a book's version as read from the database, unless a write committed since readAt
+     */
+    public void recordBook(Long id, long version, long readAt) {
+        bookVersions.compute(id, (key, known) -> catalogVersion.get() == readAt ? Long.valueOf(version) : known);
+    }
+
+    /**
+     * A book was added, updated or deleted; takes effect once the surrounding transaction commits
+     */
+    public void bookChanged(Long id) {
+        TransactionUtils.afterCommit(() -> {
+            // Bump first: a reader that loaded the old row before this point can no longer record it
+            catalogVersion.incrementAndGet();
+            if (id != null) {
+                bookVersions.compute(id, (key, known) -> null);
+            }
+        });
+    }
+
+    /**
+     * Books were added without going through Hibernate, e.g. by a bulk import
+     */
+    public void booksAdded() {
+        TransactionUtils.afterCommit(catalogVersion::incrementAndGet);
+    }
+
+    /**
+     * A category was renamed or deleted (with its books); every book tag is re-read
+     */
+    public void categoryChanged() {
+        TransactionUtils.afterCommit(() -> {
+            catalogVersion.incrementAndGet();
+            bookVersions.clear();
+        });
+    }
+}
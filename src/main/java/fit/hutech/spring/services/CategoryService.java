@@ -2,28 +2,55 @@ package fit.hutech.spring.services;
 
 import fit.hutech.spring.entities.Category;
 import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.utils.TransactionUtils;
+import fit.hutech.spring.viewmodels.CategoryGetVm;
+import fit.hutech.spring.viewmodels.CategorySnapshot;
 import jakarta.validation.constraints.NotNull;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 @Service
+@Timed("bookstore.service")
 @RequiredArgsConstructor
+@Slf4j
 @Transactional(isolation = Isolation.SERIALIZABLE,
 rollbackFor = {Exception.class, Throwable.class})
 public class CategoryService {
 private final ICategoryRepository categoryRepository;
-public List<Category> getAllCategories() {
-return categoryRepository.findAll();
+private final BookSearchIndex bookSearchIndex;
+private final CatalogVersions catalogVersions;
+private final AtomicReference<CategorySnapshot> snapshot = new AtomicReference<>();
+private final Lock reloadLock = new ReentrantLock();
+/**
+ * Current category list, served from memory without a transaction or a query
+ */
+@Transactional(propagation = Propagation.SUPPORTS)
+public List<CategoryGetVm> getAllCategories() {
+return getCategorySnapshot().categories();
 }
+@Transactional(propagation = Propagation.SUPPORTS)
+public CategorySnapshot getCategorySnapshot() {
+    CategorySnapshot current = snapshot.get();
+    return current != null ? current : reloadSnapshot();
+}
+@Transactional(readOnly = true)
 public Optional<Category> getCategoryById(Long id) {
 return categoryRepository.findById(id);
 }
 public void addCategory(Category category) {
 categoryRepository.save(category);
+bookSearchIndex.putCategory(category);
+TransactionUtils.afterCommit(this::reloadSnapshot);
 }
 public void updateCategory(@NotNull Category category) {
     Category existingCategory = categoryRepository
@@ -31,8 +58,34 @@ public void updateCategory(@NotNull Category category) {
             .orElseThrow(() -> new IllegalArgumentException("Category not found with id: " + category.getId()));
     existingCategory.setName(category.getName());
     categoryRepository.save(existingCategory);
+    bookSearchIndex.putCategory(existingCategory);
+    catalogVersions.categoryChanged();
+    TransactionUtils.afterCommit(this::reloadSnapshot);
 }
 public void deleteCategoryById(Long id) {
 categoryRepository.deleteById(id);
+bookSearchIndex.removeCategory(id);
+catalogVersions.categoryChanged();
+TransactionUtils.afterCommit(this::reloadSnapshot);
+}
+/**
+ * Read committed categories and swap them in; serialized so a slower, older read never wins.
+ * A lock rather than synchronized: the query inside would pin a virtual thread to its carrier.
+ */
+private CategorySnapshot reloadSnapshot() {
+    reloadLock.lock();
+    try {
+        CategorySnapshot current = snapshot.get();
+        long version = current == null ? 1 : current.version() + 1;
+        var categories = categoryRepository.findAll().stream()
+                .map(CategoryGetVm::from)
+                .toList();
+        CategorySnapshot next = CategorySnapshot.of(version, categories);
+        snapshot.set(next);
+        log.debug("Category snapshot swapped: version={}, size={}", version, categories.size());
+        return next;
+    } finally {
+        reloadLock.unlock();
+    }
+}
 }
-}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package fit.hutech.spring.services;
+import lombok.Getter;
+import java.util.List;
+
+/**
+ * Checkout was rolled back because these books no longer have the requested quantity in stock
+ */
+@Getter
+public class OutOfStockException extends RuntimeException {
+    private final List<String> titles;
+
+    public OutOfStockException(List<String> titles) {
+        super("Out of stock: " + String.join(", ", titles));
+        this.titles = List.copyOf(titles);
+    }
+}
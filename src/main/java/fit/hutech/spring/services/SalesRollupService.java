@@ -0,0 +1,206 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.daos.SalesRollup;
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Invoice;
+import fit.hutech.spring.entities.ItemInvoice;
+import fit.hutech.spring.repositories.IInvoiceRepository;
+import fit.hutech.spring.repositories.IItemInvoiceRepository;
+import fit.hutech.spring.repositories.ISalesDayBookRepository;
+import fit.hutech.spring.repositories.ISalesDayCategoryRepository;
+import fit.hutech.spring.viewmodels.SalesByBookVm;
+import fit.hutech.spring.viewmodels.SalesByCategoryVm;
+import fit.hutech.spring.viewmodels.SalesByDayVm;
+import fit.hutech.spring.viewmodels.SalesRollupRebuildVm;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sales totals per day × category and day × book, so reports never scan the invoices.
+ * Checkout adds each invoice in its own transaction; {@link #rebuild()} recomputes both tables
+ * from the invoice history in parallel chunks of app.reports.sales.rebuild-chunk-size invoices
+ * on app.reports.sales.rebuild-parallelism threads. Days are in the server's time zone.
+ */
+@Service
+@Slf4j
+public class SalesRollupService {
+    private static final int MAX_REPORT_ROWS = 100;
+
+    private final IInvoiceRepository invoiceRepository;
+    private final IItemInvoiceRepository itemInvoiceRepository;
+    private final ISalesDayCategoryRepository dayCategoryRepository;
+    private final ISalesDayBookRepository dayBookRepository;
+    private final TransactionTemplate swapTransaction;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private record Chunk(SalesRollup rollup, List<Long> unseen) {
+        Chunk merge(Chunk other) {
+            rollup.merge(other.rollup);
+            unseen.addAll(other.unseen);
+            return this;
+        }
+    }
+
+    public SalesRollupService(IInvoiceRepository invoiceRepository, IItemInvoiceRepository itemInvoiceRepository,
+                              ISalesDayCategoryRepository dayCategoryRepository, ISalesDayBookRepository dayBookRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.reports.sales.rebuild-chunk-size:10000}") int chunkSize,
+                              @Value("${app.reports.sales.rebuild-parallelism:4}") int parallelism) {
+        this.invoiceRepository = invoiceRepository;
+        this.itemInvoiceRepository = itemInvoiceRepository;
+        this.dayCategoryRepository = dayCategoryRepository;
+        this.dayBookRepository = dayBookRepository;
+        this.swapTransaction = new TransactionTemplate(transactionManager);
+        this.swapTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Add a new invoice's lines to the rollups inside the checkout transaction, so the totals
+     * commit or roll back together with the invoice
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordInvoice(Invoice invoice, List<ItemInvoice> lines) {
+        LocalDate day = dayOf(invoice.getInvoiceDate());
+        SalesRollup rollup = new SalesRollup();
+        for (ItemInvoice line : lines) {
+            Book book = line.getBook();
+            Long categoryId = book.getCategory() != null ? book.getCategory().getId() : null;
+            rollup.add(day, book.getId(), categoryId, line.getQuantity(), line.getPrice());
+        }
+        dayCategoryRepository.addRollup(rollup);
+    }
+
+    /**
+     * Fill the rollups on the first start after they were introduced
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (dayBookRepository.count() == 0 && invoiceRepository.findMaxId() > 0) {
+            log.info("Sales rollups are empty, rebuilding them from the invoices");
+            rebuild();
+        }
+    }
+
+    /**
+     * Recompute both rollup tables from the invoices. Invoices up to the current last id are
+     * rolled up in parallel without a transaction; the tables are then replaced in one transaction
+     * that also adds the invoices committed meanwhile: those above that id, and those below it that
+     * a chunk did not see because their checkout was still open (every id a chunk did not count is
+     * read again). Its DELETE waits for checkouts that already touched the rollups, and later
+     * checkouts add to the new rows, so no invoice is lost or counted twice.
+     *
+     * @throws IllegalStateException when a rebuild is already running
+     */
+    public SalesRollupRebuildVm rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("A sales rollup rebuild is already running");
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long invoices = invoiceRepository.count();
+            long cutoff = invoiceRepository.findMaxId();
+            List<long[]> chunks = new ArrayList<>();
+            for (long after = Math.max(0, invoiceRepository.findMinId() - 1); after < cutoff; after += chunkSize) {
+                chunks.add(new long[]{after, Math.min(cutoff, after + chunkSize)});
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            Chunk history;
+            try {
+                // Each chunk fills its own rollup; merge() folds the right one into the left
+                history = pool.submit(() -> chunks.parallelStream()
+                                .map(chunk -> readChunk(chunk[0], chunk[1]))
+                                .reduce(Chunk::merge)
+                                .orElseGet(() -> new Chunk(new SalesRollup(), new ArrayList<>())))
+                        .join();
+            } finally {
+                pool.shutdown();
+            }
+
+            SalesRollup rollup = swapTransaction.execute(status -> {
+                dayCategoryRepository.clearRollups();
+                SalesRollup all = history.rollup()
+                        .merge(itemInvoiceRepository.rollUpInvoices(history.unseen(), zone))
+                        .merge(itemInvoiceRepository.rollUp(cutoff, Long.MAX_VALUE, zone));
+                dayCategoryRepository.addRollup(all);
+                return all;
+            });
+            var result = new SalesRollupRebuildVm(invoices, rollup.byCategory().size(), rollup.byBook().size(),
+                    System.currentTimeMillis() - start);
+            log.info("Sales rollups rebuilt: invoices={}, chunks={}, reread={}, dayCategoryRows={}, dayBookRows={}, took={}ms",
+                    result.invoices(), chunks.size(), history.unseen().size(), result.dayCategoryRows(),
+                    result.dayBookRows(), result.tookMs());
+            return result;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Totals of the invoices after &lt; id &lt;= upTo as committed when read, and the ids in that range that
+     * were not counted: never used, rolled back, without lines, or still being checked out
+     */
+    private Chunk readChunk(long after, long upTo) {
+        BitSet seen = new BitSet();
+        SalesRollup rollup = itemInvoiceRepository.rollUp(after, upTo, zone, seen);
+        List<Long> unseen = new ArrayList<>();
+        for (int i = seen.nextClearBit(0); i < upTo - after; i = seen.nextClearBit(i + 1)) {
+            unseen.add(after + 1 + i);
+        }
+        return new Chunk(rollup, unseen);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesByDayVm> getDailyTotals(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return dayCategoryRepository.findDailyTotals(from, to);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesByCategoryVm> getCategoryTotals(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return dayCategoryRepository.findCategoryTotals(from, to);
+    }
+
+    /**
+     * Books by units sold in the range, at most 100
+     */
+    @Transactional(readOnly = true)
+    public List<SalesByBookVm> getTopBooks(LocalDate from, LocalDate to, int limit) {
+        checkRange(from, to);
+        return dayBookRepository.findBookTotals(from, to, Limit.of(Math.clamp(limit, 1, MAX_REPORT_ROWS)));
+    }
+
+    private LocalDate dayOf(Date date) {
+        return date.toInstant().atZone(zone).toLocalDate();
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+}
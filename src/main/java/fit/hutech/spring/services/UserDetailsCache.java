@@ -0,0 +1,85 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.utils.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.cache.Cache;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URISyntaxException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * UserDetails for form and remember-me logins, kept in the "userDetails" region of ehcache.xml
+ * (bounded, with a TTL) so a login does not have to load the user and its roles every time.
+ * bookstore.auth.user.lookups{result=hit} counts the database loads saved and
+ * bookstore.auth.user.load times the ones still made.
+ */
+@Component
+@Slf4j
+public class UserDetailsCache {
+    private static final String CACHE_NAME = "userDetails";
+
+    private final Cache<String, UserDetails> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loads;
+
+    public UserDetailsCache(MeterRegistry meterRegistry) throws URISyntaxException {
+        // Same provider, URI and class loader as Hibernate, so both share one CacheManager
+        CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        var cacheManager = provider.getCacheManager(
+                Objects.requireNonNull(getClass().getResource("/ehcache.xml")).toURI(),
+                provider.getDefaultClassLoader());
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CACHE_NAME, String.class, UserDetails.class),
+                "Missing cache in ehcache.xml: " + CACHE_NAME);
+        this.hits = Counter.builder("bookstore.auth.user.lookups")
+                .tag("result", "hit")
+                .description("UserDetails lookups on the login path")
+                .register(meterRegistry);
+        this.misses = Counter.builder("bookstore.auth.user.lookups")
+                .tag("result", "miss")
+                .description("UserDetails lookups on the login path")
+                .register(meterRegistry);
+        this.loads = Timer.builder("bookstore.auth.user.load")
+                .description("Database loads of a user and its roles for login")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Cached details, or the loader's result once it has been cached. Always a fresh copy:
+     * authentication erases the password of the instance it is handed.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        UserDetails details = cache.get(username);
+        if (details != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            details = loads.record(() -> loader.apply(username));
+            cache.put(username, details);
+        }
+        return User.withUserDetails(details).build();
+    }
+
+    /**
+     * Drop the user now and again once the surrounding transaction commits, so a login that
+     * read the old row meanwhile cannot keep it cached
+     */
+    public void evict(String username) {
+        if (username == null) {
+            return;
+        }
+        cache.remove(username);
+        TransactionUtils.afterCommit(() -> cache.remove(username));
+        log.debug("UserDetails evicted: {}", username);
+    }
+}
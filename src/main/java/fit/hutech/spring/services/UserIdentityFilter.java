@@ -0,0 +1,123 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.repositories.IUserRepository;
+import fit.hutech.spring.utils.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Bloom filter over every username and email, so uniqueness checks for new values
+ * (registration, the @ValidUsername validator) usually skip the user table.
+ * A "maybe" still goes to the database; until the startup build finishes every answer is "maybe".
+ * Sized by app.users.bloom.expected-users and app.users.bloom.false-positive-rate.
+ */
+@Component
+@Slf4j
+public class UserIdentityFilter {
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String EMAIL_PREFIX = "e:";
+
+    private final IUserRepository userRepository;
+    private final BloomFilter filter;
+    private final Counter absent;
+    private final Counter maybe;
+    private final Counter falsePositives;
+    private volatile boolean ready;
+
+    public UserIdentityFilter(IUserRepository userRepository, MeterRegistry meterRegistry,
+                              @Value("${app.users.bloom.expected-users:100000}") long expectedUsers,
+                              @Value("${app.users.bloom.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.userRepository = userRepository;
+        // Two entries per user: the username and the email
+        this.filter = new BloomFilter(expectedUsers * 2, falsePositiveRate);
+        this.absent = Counter.builder("bookstore.users.bloom.lookups")
+                .tag("answer", "absent")
+                .description("Username/email uniqueness checks answered by the Bloom filter")
+                .register(meterRegistry);
+        this.maybe = Counter.builder("bookstore.users.bloom.lookups")
+                .tag("answer", "maybe")
+                .description("Username/email uniqueness checks answered by the Bloom filter")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder("bookstore.users.bloom.false.positives")
+                .description("Bloom filter maybes the database then found free")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add every existing user; users saved meanwhile go into the same filter
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        long count = 0;
+        long lastId = 0;
+        List<IUserRepository.UserIdentity> batch;
+        do {
+            batch = userRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+            for (var user : batch) {
+                put(user.getUsername(), user.getEmail());
+                lastId = user.getId();
+            }
+            count += batch.size();
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        ready = true;
+        log.info("User Bloom filter built: users={}, bits={}, hashes={}, took={}ms",
+                count, filter.bitSize(), filter.hashCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Record a saved user. Called before the commit: a rolled back user only costs a false positive.
+     */
+    public void put(String username, String email) {
+        if (username != null) {
+            filter.put(USERNAME_PREFIX + key(username));
+        }
+        if (email != null) {
+            filter.put(EMAIL_PREFIX + key(email));
+        }
+    }
+
+    /**
+     * Whether the startup build has finished; before that every answer is "maybe" and is not counted
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean mightContainUsername(String username) {
+        return username != null && (!ready || record(filter.mightContain(USERNAME_PREFIX + key(username))));
+    }
+
+    public boolean mightContainEmail(String email) {
+        return email != null && (!ready || record(filter.mightContain(EMAIL_PREFIX + key(email))));
+    }
+
+    /**
+     * A "maybe" the filter gave after {@link #isReady()} that the database then found free
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    private boolean record(boolean answer) {
+        (answer ? maybe : absent).increment();
+        return answer;
+    }
+
+    /**
+     * Folded at least as far as the database's case- and accent-insensitive collation, so a value
+     * the unique index would call equal is always found; folding further only adds maybes
+     */
+    private static String key(String value) {
+        return BookSearchIndex.normalize(value);
+    }
+}
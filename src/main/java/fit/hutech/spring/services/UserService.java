@@ -5,7 +5,9 @@ import fit.hutech.spring.constants.Role;
 import fit.hutech.spring.entities.User;
 import fit.hutech.spring.repositories.IRoleRepository;
 import fit.hutech.spring.repositories.IUserRepository;
+import fit.hutech.spring.viewmodels.UserIdentityCheck;
 import jakarta.validation.constraints.NotNull;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,8 +17,14 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
+@Timed("bookstore.service")
 @Slf4j
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
@@ -24,19 +32,65 @@ public class UserService implements UserDetailsService {
     private final IUserRepository userRepository;
     private final IRoleRepository roleRepository;
     private final BCryptPasswordEncoder passwordEncoder;
+    private final UserDetailsCache userDetailsCache;
+    private final UserIdentityFilter userIdentityFilter;
+
+    private static final String CHECKED_ATTRIBUTE = UserService.class.getName() + ".checkedIdentities";
+    private static final String USERNAME_KEY = "u:";
+    private static final String EMAIL_KEY = "e:";
 
     /**
      * Check if username exists
      */
     public boolean findByUsername(String username) {
-        return userRepository.findByUsername(username).isPresent();
+        return checkIdentity(username, null).usernameTaken();
     }
 
     /**
      * Check if email exists
      */
     public boolean findByEmail(String email) {
-        return userRepository.findByEmail(email).isPresent();
+        return checkIdentity(null, email).emailTaken();
+    }
+
+    /**
+     * Check a username and an email together. Values the Bloom filter has never seen are free
+     * without a query; the rest are settled by one combined query. Answers are kept until the
+     * request ends or saves a user, so the @ValidUsername validator and the controller share one lookup.
+     */
+    public UserIdentityCheck checkIdentity(String username, String email) {
+        Map<String, Boolean> checked = checkedThisRequest();
+        Boolean knownUsername = username == null ? Boolean.FALSE : checked.get(USERNAME_KEY + username);
+        Boolean knownEmail = email == null ? Boolean.FALSE : checked.get(EMAIL_KEY + email);
+        // Before the startup build every value is a "maybe"; a free one then is no false positive
+        boolean filterAnswered = userIdentityFilter.isReady();
+        boolean maybeUsername = knownUsername == null && userIdentityFilter.mightContainUsername(username);
+        boolean maybeEmail = knownEmail == null && userIdentityFilter.mightContainEmail(email);
+        boolean usernameTaken = Boolean.TRUE.equals(knownUsername);
+        boolean emailTaken = Boolean.TRUE.equals(knownEmail);
+
+        if (maybeUsername || maybeEmail) {
+            var clashes = userRepository.findIdentityClashes(maybeUsername ? username : null, maybeEmail ? email : null);
+            if (maybeUsername) {
+                usernameTaken = clashes.stream().anyMatch(IUserRepository.IdentityClash::getUsernameTaken);
+                if (!usernameTaken && filterAnswered) {
+                    userIdentityFilter.recordFalsePositive();
+                }
+            }
+            if (maybeEmail) {
+                emailTaken = clashes.stream().anyMatch(IUserRepository.IdentityClash::getEmailTaken);
+                if (!emailTaken && filterAnswered) {
+                    userIdentityFilter.recordFalsePositive();
+                }
+            }
+        }
+        if (username != null) {
+            checked.put(USERNAME_KEY + username, usernameTaken);
+        }
+        if (email != null) {
+            checked.put(EMAIL_KEY + email, emailTaken);
+        }
+        return usernameTaken || emailTaken ? new UserIdentityCheck(usernameTaken, emailTaken) : UserIdentityCheck.AVAILABLE;
     }
 
     /**
@@ -44,15 +98,18 @@ public class UserService implements UserDetailsService {
      */
     @Transactional
     public void saveOauthUser(String email, String username) {
-        if (userRepository.findByUsername(username).isEmpty()) {
+        if (!findByUsername(username)) {
             var user = new User();
             user.setUsername(username);
             user.setEmail(email);
             user.setPassword(passwordEncoder.encode("123"));
             user.setProvider(Provider.GOOGLE.value);
             userRepository.save(user);
+            userIdentityFilter.put(username, email);
+            forgetChecks();
 
             setDefaultRole(username);
+            userDetailsCache.evict(username);
             log.info("OAuth user created: email={}, username={}", email, username);
         }
     }
@@ -73,6 +130,9 @@ public class UserService implements UserDetailsService {
         }
         
         userRepository.save(user);
+        userIdentityFilter.put(user.getUsername(), user.getEmail());
+        forgetChecks();
+        userDetailsCache.evict(user.getUsername());
         log.info("User saved successfully: username={}", user.getUsername());
     }
 
@@ -88,16 +148,22 @@ public class UserService implements UserDetailsService {
         user.getRoles()
                 .add(roleRepository
                         .findRoleById(Role.USER.value));
+        userDetailsCache.evict(username);
         
         log.debug("Default role assigned to user: {}", username);
     }
 
     /**
-     * Load user by username for Spring Security authentication
+     * Load user by username for Spring Security authentication (form login and remember-me),
+     * served from {@link UserDetailsCache} when possible
      */
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::loadUserDetails);
+    }
+
+    private UserDetails loadUserDetails(String username) {
         var user = userRepository.findByUsername(username)
                 .orElseThrow(() -> {
                     log.warn("Login attempt with non-existent username: {}", username);
@@ -116,4 +182,28 @@ public class UserService implements UserDetailsService {
                 .disabled(false)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Uniqueness answers of this request; a throwaway map outside of one
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Boolean> checkedThisRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return new HashMap<>();
+        }
+        var checked = (Map<String, Boolean>) attributes.getAttribute(CHECKED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (checked == null) {
+            checked = new HashMap<>();
+            attributes.setAttribute(CHECKED_ATTRIBUTE, checked, RequestAttributes.SCOPE_REQUEST);
+        }
+        return checked;
+    }
+
+    private static void forgetChecks() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(CHECKED_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
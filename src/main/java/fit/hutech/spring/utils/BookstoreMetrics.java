@@ -0,0 +1,51 @@
+package fit.hutech.spring.utils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import fit.hutech.spring.repositories.ICartStore;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business meters next to the bookstore.service timers. Histogram buckets for every
+ * bookstore.* meter are configured in application.properties (management.metrics.distribution.*).
+ */
+@Component
+public class BookstoreMetrics {
+    private final DistributionSummary cartLines;
+    private final DistributionSummary checkoutItems;
+    private final DistributionSummary invoiceTotal;
+    private final DistributionSummary searchResults;
+
+    public BookstoreMetrics(MeterRegistry meterRegistry, ICartStore cartStore) {
+        this.cartLines = DistributionSummary.builder("bookstore.cart.lines")
+                .description("Distinct books in a cart after each update")
+                .register(meterRegistry);
+        this.checkoutItems = DistributionSummary.builder("bookstore.checkout.items")
+                .description("Units bought per checkout")
+                .register(meterRegistry);
+        // "amount": Prometheus would strip a trailing "total", which it reserves for counters
+        this.invoiceTotal = DistributionSummary.builder("bookstore.invoice.amount")
+                .description("Invoice total per checkout")
+                .register(meterRegistry);
+        this.searchResults = DistributionSummary.builder("bookstore.search.results")
+                .description("Books returned per search")
+                .register(meterRegistry);
+        Gauge.builder("bookstore.carts.open", cartStore, ICartStore::count)
+                .description("Non-empty carts in the cart store")
+                .register(meterRegistry);
+    }
+
+    public void recordCartUpdate(int lines) {
+        cartLines.record(lines);
+    }
+
+    public void recordCheckout(int items, double total) {
+        checkoutItems.record(items);
+        invoiceTotal.record(total);
+    }
+
+    public void recordSearch(int results) {
+        searchResults.record(results);
+    }
+}
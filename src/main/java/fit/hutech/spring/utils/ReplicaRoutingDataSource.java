@@ -0,0 +1,75 @@
+package fit.hutech.spring.utils;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary.
+ * A session that wrote within the configured replica lag keeps reading from the
+ * primary so it always sees its own writes, and so does work run {@link #onPrimary}.
+ * Must sit behind a LazyConnectionDataSourceProxy so the transaction is flagged before routing.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    static final String LAST_WRITE_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".LAST_WRITE";
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final Duration maxLag;
+
+    public ReplicaRoutingDataSource(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            rememberWrite();
+            return Target.PRIMARY;
+        }
+        return PRIMARY_ONLY.get() != null || wroteRecently() ? Target.PRIMARY : Target.REPLICA;
+    }
+
+    /**
+     * Run work with its read-only transactions on the primary as well, e.g. results that get cached
+     * under a version the replica may not have reached yet. A no-op without a replica.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        boolean outermost = PRIMARY_ONLY.get() == null;
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (outermost) {
+                PRIMARY_ONLY.remove();
+            }
+        }
+    }
+
+    private void rememberWrite() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(LAST_WRITE_ATTRIBUTE, System.currentTimeMillis(), RequestAttributes.SCOPE_SESSION);
+        }
+    }
+
+    private boolean wroteRecently() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        Object lastWrite = attributes.getAttribute(LAST_WRITE_ATTRIBUTE, RequestAttributes.SCOPE_SESSION);
+        return lastWrite instanceof Long at && System.currentTimeMillis() - at < maxLag.toMillis();
+    }
+}
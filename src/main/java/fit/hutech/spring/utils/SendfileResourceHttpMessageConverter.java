@@ -0,0 +1,55 @@
+package fit.hutech.spring.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes large file-system resources with Tomcat's sendfile, so the kernel copies the file
+ * straight to the socket instead of it passing through heap buffers. Falls back to the regular
+ * stream copy for small files, resources that are not files (e.g. inside the packaged jar)
+ * and connectors without sendfile support (TLS, HTTP/2).
+ */
+public class SendfileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Same threshold as Tomcat's DefaultServlet: below it a plain copy is cheaper
+     */
+    private static final long MIN_SENDFILE_SIZE = 48 * 1024;
+
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        HttpServletRequest request = sendfileRequest();
+        if (request != null && resource.isFile()) {
+            File file = resource.getFile();
+            long length = file.length();
+            if (length >= MIN_SENDFILE_SIZE) {
+                request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, length);
+                return;
+            }
+        }
+        super.writeContent(resource, outputMessage);
+    }
+
+    private static HttpServletRequest sendfileRequest() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && Boolean.TRUE.equals(attributes.getRequest().getAttribute(SENDFILE_SUPPORT))) {
+            return attributes.getRequest();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package fit.hutech.spring.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters summary over long keys with at most capacity counters.
+ * When full, a new key takes over the smallest counter and inherits its count as error, so
+ * counts are overestimated by at most total / capacity and every key heavier than that is kept.
+ * Not thread-safe; callers synchronize.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+
+    private static final class Counter {
+        private long count;
+        private long error;
+    }
+
+    @FunctionalInterface
+    public interface CounterConsumer {
+        void accept(long key, long count, long error);
+    }
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Space-Saving needs capacity > 0");
+        }
+        this.capacity = capacity;
+        this.counters = HashMap.newHashMap(capacity);
+    }
+
+    public void add(long key, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter();
+            } else {
+                // O(capacity) scan; evictions only happen for keys outside the current summary
+                Map.Entry<Long, Counter> smallest = null;
+                for (Map.Entry<Long, Counter> entry : counters.entrySet()) {
+                    if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+                        smallest = entry;
+                    }
+                }
+                counter = counters.remove(smallest.getKey());
+                counter.error = counter.count;
+            }
+            counters.put(key, counter);
+        }
+        counter.count += weight;
+    }
+
+    public void forEach(CounterConsumer consumer) {
+        counters.forEach((key, counter) -> consumer.accept(key, counter.count, counter.error));
+    }
+
+    public void clear() {
+        counters.clear();
+    }
+
+    public int size() {
+        return counters.size();
+    }
+}
@@ -0,0 +1,56 @@
+package fit.hutech.spring.utils;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.servlet.resource.CachingResourceResolver;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.PathResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fingerprinted static assets (name-md5.ext, as rendered by the resource chain in
+ * application.properties) are served from here with a one-year immutable Cache-Control,
+ * as the precompressed .gz/.br variant when the client accepts it, and with sendfile for large files.
+ * Unversioned URLs fall through to Boot's default static handler and are revalidated as before.
+ * No CSS link rewriting: transformed resources live in memory (no sendfile) and would differ from
+ * the precompressed variants, so stylesheets must not url() other local assets.
+ */
+@Configuration
+public class StaticAssetConfig {
+    private static final String FINGERPRINT = "-[0-9a-f]{32}";
+
+    @Bean
+    public ResourceHttpRequestHandler fingerprintedAssetHandler() {
+        var handler = new ResourceHttpRequestHandler();
+        handler.setLocations(List.of(new ClassPathResource("static/")));
+        handler.setResourceResolvers(List.of(
+                new CachingResourceResolver(new ConcurrentMapCache("fingerprinted-assets")),
+                new EncodedResourceResolver(),
+                new VersionResourceResolver().addContentVersionStrategy("/**"),
+                new PathResourceResolver()));
+        handler.setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+        handler.setResourceHttpMessageConverter(new SendfileResourceHttpMessageConverter());
+        return handler;
+    }
+
+    /**
+     * Ahead of Boot's resourceHandlerMapping (LOWEST_PRECEDENCE - 1), matching fingerprinted names only
+     */
+    @Bean
+    public SimpleUrlHandlerMapping fingerprintedAssetMapping(ResourceHttpRequestHandler fingerprintedAssetHandler) {
+        var mapping = new SimpleUrlHandlerMapping(Map.of(
+                "/{dir:css|js}/{file:.+" + FINGERPRINT + "\\.(?:css|js)}", fingerprintedAssetHandler));
+        mapping.setOrder(Ordered.LOWEST_PRECEDENCE - 2);
+        return mapping;
+    }
+}
@@ -0,0 +1,11 @@
+package fit.hutech.spring.viewmodels;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Book in a best-seller list; units is the sketch's estimate for the window, never below the true count
+ */
+public record BestSellerVm(Long id, String title, String author, Double price, String category, long units) {
+    public static BestSellerVm from(@NotNull BookGetVm book, long units) {
+        return new BestSellerVm(book.id(), book.title(), book.author(), book.price(), book.category(), units);
+    }
+}
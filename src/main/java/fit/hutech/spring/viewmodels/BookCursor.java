@@ -0,0 +1,66 @@
+package fit.hutech.spring.viewmodels;
+import fit.hutech.spring.entities.Book;
+import jakarta.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Opaque keyset position for /api/v1/books: the sort column, the last
+ * sort key seen and the last id as a tie-breaker.
+ */
+public record BookCursor(String sortBy, String value, Long id) {
+    public static final Set<String> SORT_COLUMNS = Set.of("id", "title", "author", "price");
+    private static final String NULL_VALUE = "-";
+    private static final String VALUE_PREFIX = "=";
+
+    public static BookCursor after(String sortBy, @NotNull Book book) {
+        Object key = switch (sortBy) {
+            case "title" -> book.getTitle();
+            case "author" -> book.getAuthor();
+            case "price" -> book.getPrice();
+            default -> book.getId();
+        };
+        return new BookCursor(sortBy, key == null ? null : key.toString(), book.getId());
+    }
+
+    /**
+     * Decode a cursor issued by {@link #encode()}
+     */
+    public static BookCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 3);
+            if (parts.length != 3 || !SORT_COLUMNS.contains(parts[0])
+                    || !(parts[2].equals(NULL_VALUE) || parts[2].startsWith(VALUE_PREFIX))) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String value = parts[2].equals(NULL_VALUE) ? null : parts[2].substring(VALUE_PREFIX.length());
+            var cursor = new BookCursor(parts[0], value, Long.valueOf(parts[1]));
+            cursor.key();
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = sortBy + "\n" + id + "\n" + (value == null ? NULL_VALUE : VALUE_PREFIX + value);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sort key converted back to the column's Java type
+     */
+    public Comparable<?> key() {
+        if (value == null) {
+            return null;
+        }
+        return switch (sortBy) {
+            case "price" -> Double.valueOf(value);
+            case "id" -> Long.valueOf(value);
+            default -> value;
+        };
+    }
+}
@@ -11,7 +11,7 @@ return BookGetVm.builder()
 .title(book.getTitle())
 .author(book.getAuthor())
 .price(book.getPrice())
-.category(book.getCategory().getName())
+.category(book.getCategory() != null ? book.getCategory().getName() : null)
 .build();
 }
 }
\ No newline at end of file
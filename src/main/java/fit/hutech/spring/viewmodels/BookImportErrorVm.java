@@ -0,0 +1,7 @@
+package fit.hutech.spring.viewmodels;
+
+/**
+ * A rejected import row; row counts data records from 1, not counting the CSV header
+ */
+public record BookImportErrorVm(long row, String error) {
+}
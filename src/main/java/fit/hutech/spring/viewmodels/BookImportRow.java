@@ -0,0 +1,10 @@
+package fit.hutech.spring.viewmodels;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One book as read from an import file, before validation. Same fields as BookGetVm
+ * plus stock, so an export can be imported again; the id is ignored.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BookImportRow(String title, String author, Double price, String category, Integer stock) {
+}
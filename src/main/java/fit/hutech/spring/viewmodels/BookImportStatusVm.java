@@ -0,0 +1,14 @@
+package fit.hutech.spring.viewmodels;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Progress of a book import as polled from /api/v1/books/import/{id}; errors holds the first
+ * rejected rows, the full list is at /api/v1/books/import/{id}/errors
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookImportStatusVm(String id, String state, String format, long rowsRead, long rowsImported,
+                                 long rowsFailed, double rowsPerSecond, Instant startedAt, Instant finishedAt,
+                                 String message, List<BookImportErrorVm> errors) {
+}
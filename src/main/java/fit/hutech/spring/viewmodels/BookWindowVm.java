@@ -0,0 +1,10 @@
+package fit.hutech.spring.viewmodels;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+
+/**
+ * One keyset page of books; {@code total} is only set when the client asks for it
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookWindowVm(List<BookGetVm> items, String next, Long total) {
+}
@@ -0,0 +1,10 @@
+package fit.hutech.spring.viewmodels;
+import fit.hutech.spring.daos.Item;
+import jakarta.validation.constraints.NotNull;
+
+public record CartLineVm(Long bookId, String bookName, Double price, int quantity, double lineTotal) {
+    public static CartLineVm from(@NotNull Item item) {
+        double lineTotal = item.getPrice() == null ? 0 : Math.round(item.getPrice() * 100) * item.getQuantity() / 100.0;
+        return new CartLineVm(item.getBookId(), item.getBookName(), item.getPrice(), item.getQuantity(), lineTotal);
+    }
+}
@@ -0,0 +1,14 @@
+package fit.hutech.spring.viewmodels;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One change in a POST /api/v1/cart/ops batch. add puts quantity more of the book in the cart,
+ * update sets the quantity (0 or less removes the line), remove drops the line and needs no quantity.
+ */
+public record CartOpVm(Op op, Long bookId, Integer quantity) {
+    public enum Op {
+        @JsonProperty("add") ADD,
+        @JsonProperty("update") UPDATE,
+        @JsonProperty("remove") REMOVE
+    }
+}
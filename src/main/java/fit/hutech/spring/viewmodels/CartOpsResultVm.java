@@ -0,0 +1,9 @@
+package fit.hutech.spring.viewmodels;
+import java.util.List;
+
+/**
+ * Outcome of a cart batch: only the lines the batch touched, plus the new cart totals
+ */
+public record CartOpsResultVm(List<CartLineVm> changed, List<Long> removed,
+                              int lines, long totalQuantity, double totalPrice) {
+}
@@ -0,0 +1,8 @@
+package fit.hutech.spring.viewmodels;
+import fit.hutech.spring.entities.Category;
+import jakarta.validation.constraints.NotNull;
+public record CategoryGetVm(Long id, String name) {
+public static CategoryGetVm from(@NotNull Category category) {
+return new CategoryGetVm(category.getId(), category.getName());
+}
+}
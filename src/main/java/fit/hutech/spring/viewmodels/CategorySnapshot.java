@@ -0,0 +1,14 @@
+package fit.hutech.spring.viewmodels;
+import java.util.List;
+
+/**
+ * Immutable category list shared by every render; replaced as a whole on each category write
+ */
+public record CategorySnapshot(long version, List<CategoryGetVm> categories, String etag) {
+    // Part of every tag, so a version counter restarted at 1 never repeats a tag from before
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    public static CategorySnapshot of(long version, List<CategoryGetVm> categories) {
+        return new CategorySnapshot(version, List.copyOf(categories), "\"" + EPOCH + "-" + version + "\"");
+    }
+}
@@ -0,0 +1,9 @@
+package fit.hutech.spring.viewmodels;
+public record SalesByBookVm(Long bookId, String title, long units, double revenue) {
+    /**
+     * Rollup rows summed per book; revenue in hundredths
+     */
+    public SalesByBookVm(Long bookId, String title, Long units, Long revenueHundredths) {
+        this(bookId, title, units, revenueHundredths / 100.0);
+    }
+}
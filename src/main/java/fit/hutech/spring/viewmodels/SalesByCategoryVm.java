@@ -0,0 +1,9 @@
+package fit.hutech.spring.viewmodels;
+public record SalesByCategoryVm(Long categoryId, String categoryName, long units, double revenue) {
+    /**
+     * Rollup rows summed per category; revenue in hundredths
+     */
+    public SalesByCategoryVm(Long categoryId, String categoryName, Long units, Long revenueHundredths) {
+        this(categoryId, categoryName, units, revenueHundredths / 100.0);
+    }
+}
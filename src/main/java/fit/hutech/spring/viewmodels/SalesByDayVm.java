@@ -0,0 +1,10 @@
+package fit.hutech.spring.viewmodels;
+import java.time.LocalDate;
+public record SalesByDayVm(LocalDate day, long units, double revenue) {
+    /**
+     * Row of the day × category rollup summed per day; revenue in hundredths
+     */
+    public SalesByDayVm(LocalDate day, Long units, Long revenueHundredths) {
+        this(day, units, revenueHundredths / 100.0);
+    }
+}
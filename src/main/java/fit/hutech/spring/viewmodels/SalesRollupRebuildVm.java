@@ -0,0 +1,3 @@
+package fit.hutech.spring.viewmodels;
+public record SalesRollupRebuildVm(long invoices, int dayCategoryRows, int dayBookRows, long tookMs) {
+}
@@ -0,0 +1,8 @@
+package fit.hutech.spring.viewmodels;
+
+/**
+ * Whether a username and an email are already registered
+ */
+public record UserIdentityCheck(boolean usernameTaken, boolean emailTaken) {
+    public static final UserIdentityCheck AVAILABLE = new UserIdentityCheck(false, false);
+}
@@ -1,38 +1,46 @@
+// Cart edits are collected and sent as one batch to /api/v1/cart/ops once typing pauses;
+// the response carries only the touched lines and the totals, which are patched into the page.
 $(document).ready(function () {
-  let isUpdating = false;
+  const DEBOUNCE_MS = 400;
+  const OPS_URL = "/api/v1/cart/ops";
+  // One pending operation per book: the last edit wins
+  const pending = new Map();
+  let timer = null;
+  let inFlight = false;
+  let whenSynced = [];
 
-  $(".quantity").change(function () {
-    // Prevent multiple simultaneous requests
-    if (isUpdating) {
-      alert("Please wait for the previous update to complete");
+  function queue(op) {
+    pending.set(op.bookId, op);
+    clearTimeout(timer);
+    timer = setTimeout(flush, DEBOUNCE_MS);
+  }
+
+  function flush() {
+    clearTimeout(timer);
+    if (inFlight) {
       return;
     }
-
-    let quantity = $(this).val();
-    let id = $(this).attr("data-id");
-    let $btn = $(this);
-
-    // Validate quantity
-    if (isNaN(quantity) || parseInt(quantity) < 1) {
-      alert("Quantity must be a positive number");
-      $btn.val(1);
+    if (pending.size === 0) {
+      whenSynced.splice(0).forEach(function (callback) {
+        callback();
+      });
       return;
     }
 
-    isUpdating = true;
-    $btn.prop("disabled", true);
+    const ops = Array.from(pending.values());
+    pending.clear();
+    inFlight = true;
 
     $.ajax({
-      url: "/cart/updateCart/" + id + "/" + quantity,
-      type: "GET",
+      url: OPS_URL,
+      type: "POST",
+      contentType: "application/json",
+      data: JSON.stringify(ops),
+      dataType: "json",
       timeout: 5000,
-      success: function () {
-        location.reload();
-      },
-      error: function (xhr, status, error) {
-        isUpdating = false;
-        $btn.prop("disabled", false);
-
+    })
+      .done(render)
+      .fail(function (xhr, status, error) {
         if (status === "timeout") {
           alert("Request timeout. Please try again.");
         } else if (xhr.status === 0) {
@@ -41,7 +49,74 @@ $(document).ready(function () {
           alert("Error updating cart. Please try again.");
         }
         console.error("Cart update error:", error);
-      },
+        // The server copy is the truth; show it rather than guess what was applied
+        location.reload();
+      })
+      .always(function () {
+        inFlight = false;
+        flush();
+      });
+  }
+
+  function render(result) {
+    result.changed.forEach(function (line) {
+      const $row = $('tr[data-id="' + line.bookId + '"]');
+      if (!pending.has(line.bookId)) {
+        $row.find(".quantity").val(line.quantity);
+      }
+      $row.find(".line-total").text(line.lineTotal);
+    });
+    result.removed.forEach(function (bookId) {
+      $('tr[data-id="' + bookId + '"]').remove();
+    });
+    $("#cart-total").text(result.totalPrice);
+    if (result.lines === 0) {
+      location.reload();
+    }
+  }
+
+  $(".quantity").on("input", function () {
+    const quantity = parseInt($(this).val());
+    if (!isNaN(quantity) && quantity >= 1) {
+      queue({ op: "update", bookId: Number($(this).attr("data-id")), quantity: quantity });
+    }
+  });
+
+  $(".quantity").on("change", function () {
+    const quantity = parseInt($(this).val());
+    if (isNaN(quantity) || quantity < 1) {
+      alert("Quantity must be a positive number");
+      $(this).val(1);
+      queue({ op: "update", bookId: Number($(this).attr("data-id")), quantity: 1 });
+    }
+  });
+
+  $(".remove-line").on("click", function (event) {
+    event.preventDefault();
+    const bookId = Number($(this).attr("data-id"));
+    $('tr[data-id="' + bookId + '"]').hide();
+    queue({ op: "remove", bookId: bookId });
+  });
+
+  // Checkout and clear must see every edit made so far
+  $(".cart-action").on("click", function (event) {
+    if (pending.size === 0 && !inFlight) {
+      return;
+    }
+    event.preventDefault();
+    const href = this.href;
+    whenSynced.push(function () {
+      location.href = href;
     });
+    flush();
+  });
+
+  // Leaving the page before the debounce fires
+  $(window).on("pagehide", function () {
+    if (pending.size > 0) {
+      const ops = Array.from(pending.values());
+      pending.clear();
+      navigator.sendBeacon(OPS_URL, new Blob([JSON.stringify(ops)], { type: "application/json" }));
+    }
   });
 });
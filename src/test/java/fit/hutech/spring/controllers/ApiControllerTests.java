@@ -0,0 +1,61 @@
+package fit.hutech.spring.controllers;
+
+import fit.hutech.spring.services.BestSellerTracker;
+import fit.hutech.spring.services.BookImportService;
+import fit.hutech.spring.services.BookService;
+import fit.hutech.spring.services.CartService;
+import fit.hutech.spring.services.CatalogVersions;
+import fit.hutech.spring.services.CategoryService;
+import fit.hutech.spring.services.SalesRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Request mapping of the API without the security filters; /api/** skips CSRF, so state-changing
+ * endpoints must only accept types a cross-site form cannot send
+ */
+class ApiControllerTests {
+    private final SalesRollupService salesRollupService = mock(SalesRollupService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        var controller = new ApiController(mock(BookService.class), mock(CategoryService.class),
+                mock(CartService.class), mock(BookImportService.class), mock(BestSellerTracker.class),
+                mock(CatalogVersions.class), salesRollupService, new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void salesRebuildRejectsFormPosts() throws Exception {
+        mockMvc.perform(post("/api/v1/reports/sales/rebuild"))
+                .andExpect(status().isUnsupportedMediaType());
+        mockMvc.perform(post("/api/v1/reports/sales/rebuild")
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED))
+                .andExpect(status().isUnsupportedMediaType());
+        mockMvc.perform(post("/api/v1/reports/sales/rebuild")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("{}"))
+                .andExpect(status().isUnsupportedMediaType());
+        verify(salesRollupService, never()).rebuild();
+    }
+
+    @Test
+    void salesRebuildRunsForJson() throws Exception {
+        mockMvc.perform(post("/api/v1/reports/sales/rebuild")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{}"))
+                .andExpect(status().isOk());
+        verify(salesRollupService).rebuild();
+    }
+}
@@ -0,0 +1,88 @@
+package fit.hutech.spring.controllers;
+
+import fit.hutech.spring.services.BookListCache;
+import fit.hutech.spring.services.BookService;
+import fit.hutech.spring.services.CartService;
+import fit.hutech.spring.services.CategoryService;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.thymeleaf.extras.springsecurity6.dialect.SpringSecurityDialect;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * /books pages rendered with the real templates, without the database or the security filters
+ */
+class BookControllerTests {
+    private final BookService bookService = mock(BookService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        var templateResolver = new ClassLoaderTemplateResolver();
+        templateResolver.setPrefix("templates/");
+        templateResolver.setSuffix(".html");
+        templateResolver.setTemplateMode(TemplateMode.HTML);
+        templateResolver.setCharacterEncoding("UTF-8");
+        var templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        templateEngine.addDialect(new SpringSecurityDialect());
+        var viewResolver = new ThymeleafViewResolver();
+        viewResolver.setTemplateEngine(templateEngine);
+        viewResolver.setCharacterEncoding("UTF-8");
+
+        var controller = new BookController(bookService, mock(CategoryService.class),
+                mock(CartService.class), mock(BookListCache.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).setViewResolvers(viewResolver).build();
+    }
+
+    @Test
+    void searchListsTheRankedHits() throws Exception {
+        when(bookService.searchBookVms("dune", BookService.MAX_SEARCH_RESULTS)).thenReturn(List.of(
+                new BookGetVm(7L, "Dune", "Frank Herbert", 9.5, "Sci-fi"),
+                new BookGetVm(3L, "Dune Messiah", "Frank Herbert", 11.0, null)));
+
+        mockMvc.perform(get("/books/search")
+                        .param("keyword", " dune ")
+                        .requestAttr("_csrf", new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "token-123")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Dune Messiah")))
+                .andExpect(content().string(containsString("Sci-fi")))
+                .andExpect(content().string(containsString("name=\"id\" value=\"7\"")))
+                .andExpect(content().string(containsString("value=\"token-123\"")))
+                .andExpect(content().string(not(containsString("Page navigation"))));
+    }
+
+    @Test
+    void searchWithoutHitsRendersAnEmptyTable() throws Exception {
+        when(bookService.searchBookVms("zzz", BookService.MAX_SEARCH_RESULTS)).thenReturn(List.of());
+
+        mockMvc.perform(get("/books/search").param("keyword", "zzz"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("<table class=\"table\">")))
+                .andExpect(content().string(not(containsString("Add to cart"))));
+    }
+
+    @Test
+    void blankKeywordGoesBackToTheList() throws Exception {
+        mockMvc.perform(get("/books/search").param("keyword", "  "))
+                .andExpect(redirectedUrl("/books"));
+    }
+}
@@ -0,0 +1,49 @@
+package fit.hutech.spring.daos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartCodecTests {
+
+    @Test
+    void roundTripKeepsLinesOrderAndTotals() {
+        var cart = new Cart();
+        cart.addItems(new Item(300L, "Sách tiếng Việt", 129_000.5, 2));
+        cart.addItems(new Item(1L, "Clean Code", 19.99, 1));
+        cart.addItems(new Item(Long.MAX_VALUE, "Unpriced", null, 70_000));
+
+        var decoded = CartCodec.decode(CartCodec.encode(cart));
+
+        assertEquals(cart.getCartItems(), decoded.getCartItems());
+        assertEquals(cart.getTotalQuantity(), decoded.getTotalQuantity());
+        assertEquals(cart.getTotalPrice(), decoded.getTotalPrice());
+    }
+
+    @Test
+    void smallCartsStaySmall() {
+        var cart = new Cart();
+        cart.addItems(new Item(42L, "Dune", 9.5, 1));
+        // version, count, id, quantity, price (951 -> 2 bytes), name length, "Dune"
+        assertEquals(11, CartCodec.encode(cart).length);
+        assertTrue(CartCodec.decode(CartCodec.encode(new Cart())).isEmpty());
+    }
+
+    @Test
+    void corruptInputIsRejected() {
+        var cart = new Cart();
+        cart.addItems(new Item(42L, "Dune", 9.5, 1));
+        byte[] bytes = CartCodec.encode(cart);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> CartCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> CartCodec.decode(Arrays.copyOf(bytes, bytes.length + 1)));
+        assertThrows(IllegalArgumentException.class, () -> CartCodec.decode(new byte[]{9}));
+        assertThrows(IllegalArgumentException.class, () -> CartCodec.decode(new byte[0]));
+    }
+}
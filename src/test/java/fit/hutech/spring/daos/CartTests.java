@@ -0,0 +1,111 @@
+package fit.hutech.spring.daos;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartTests {
+
+    @Test
+    void addUpdateAndRemoveKeepTotals() {
+        var cart = new Cart();
+        cart.addItems(new Item(1L, "Clean Code", 19.99, 2));
+        cart.addItems(new Item(2L, "Dune", 9.5, 1));
+        cart.addItems(new Item(1L, "Clean Code", 19.99, 1));
+
+        assertEquals(List.of(new Item(1L, "Clean Code", 19.99, 3), new Item(2L, "Dune", 9.5, 1)),
+                cart.getCartItems());
+        assertEquals(4, cart.getTotalQuantity());
+        assertEquals(69.47, cart.getTotalPrice());
+
+        cart.updateItems(2L, 4);
+        assertEquals(7, cart.getTotalQuantity());
+        assertEquals(97.97, cart.getTotalPrice());
+
+        cart.updateItems(1L, 0);
+        assertEquals(List.of(new Item(2L, "Dune", 9.5, 4)), cart.getCartItems());
+        assertEquals(4, cart.getTotalQuantity());
+        assertEquals(38.0, cart.getTotalPrice());
+
+        // Unknown books are ignored
+        cart.updateItems(99L, 5);
+        cart.removeItems(99L);
+        assertEquals(1, cart.size());
+    }
+
+    @Test
+    void removeAfterAddNetsToZero() {
+        var cart = new Cart();
+        for (int i = 0; i < 1_000; i++) {
+            cart.addItems(new Item(7L, "Thirds", 0.1 + i, 3));
+            cart.addItems(new Item(8L, "Unpriced", null, 1));
+            cart.removeItems(7L);
+            cart.removeItems(8L);
+        }
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalQuantity());
+        assertEquals(0.0, cart.getTotalPrice());
+    }
+
+    @Test
+    void totalQuantityGoesBeyondAnInt() {
+        var cart = new Cart();
+        for (long id = 1; id <= 3_000; id++) {
+            cart.addItems(new Item(id, "Bulk", 1.0, Cart.MAX_QUANTITY));
+            cart.addItems(new Item(id, "Bulk", 1.0, Cart.MAX_QUANTITY));
+        }
+        assertEquals(3_000L * Cart.MAX_QUANTITY, cart.getTotalQuantity());
+        assertEquals(3_000.0 * Cart.MAX_QUANTITY, cart.getTotalPrice());
+    }
+
+    @Test
+    void concurrentAddsAreAllCounted() throws Exception {
+        var cart = new Cart();
+        int threads = 8;
+        int addsPerThread = 10_000;
+        var start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long ownBook = 100L + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < addsPerThread; i++) {
+                        // One shared line and one line per thread
+                        cart.addItems(new Item(1L, "Shared", 0.25, 1));
+                        cart.addItems(new Item(ownBook, "Own", 1.0, 1));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEquals(threads + 1, cart.size());
+        assertEquals(threads * addsPerThread, cart.findItem(1L).orElseThrow().getQuantity());
+        assertEquals(2 * threads * addsPerThread, cart.getTotalQuantity());
+        assertEquals(threads * addsPerThread * 1.25, cart.getTotalPrice());
+    }
+
+    @Test
+    void invalidItemsAreRejected() {
+        var cart = new Cart();
+        assertThrows(IllegalArgumentException.class, () -> cart.addItems(null));
+        assertThrows(IllegalArgumentException.class, () -> cart.addItems(new Item(null, "No id", 1.0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> cart.addItems(new Item(1L, "Zero", 1.0, 0)));
+        assertThrows(IllegalArgumentException.class, () -> cart.removeItems(null));
+        assertTrue(cart.isEmpty());
+    }
+}
@@ -0,0 +1,27 @@
+package fit.hutech.spring.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Flows the virtual users drive; the key is the name used in loadtest.mix
+ */
+enum Endpoint {
+    BOOKS("books"),
+    SEARCH("search"),
+    API("api"),
+    ADD_TO_CART("add-to-cart"),
+    CHECKOUT("checkout");
+
+    final String key;
+
+    Endpoint(String key) {
+        this.key = key;
+    }
+
+    static Endpoint of(String key) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown load test endpoint: " + key));
+    }
+}
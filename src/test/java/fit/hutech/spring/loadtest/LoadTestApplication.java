@@ -0,0 +1,21 @@
+package fit.hutech.spring.loadtest;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.persistence.autoconfigure.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * The bookstore wired from fit.hutech.spring, booted by {@link LoadTestRunner}
+ * with the loadtest profile (embedded H2, seeded by {@link LoadTestSeeder}).
+ */
+@SpringBootApplication(scanBasePackages = "fit.hutech.spring")
+@EntityScan("fit.hutech.spring.entities")
+@EnableJpaRepositories("fit.hutech.spring.repositories")
+public class LoadTestApplication {
+    @Bean
+    public BCryptPasswordEncoder bCryptPasswordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+}
@@ -0,0 +1,91 @@
+package fit.hutech.spring.loadtest;
+
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Per-endpoint latency percentiles and throughput over the measured window
+ */
+record LoadTestReport(int users, boolean virtualThreads, double seconds, int failedLogins,
+                      List<EndpointStats> endpoints, EndpointStats total) {
+
+    record EndpointStats(String endpoint, int requests, int errors, double rps,
+                         double p50Ms, double p95Ms, double p99Ms, double maxMs) {
+
+        static EndpointStats of(String endpoint, long[] latencies, int errors, double seconds) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return new EndpointStats(endpoint, sorted.length, errors, round(sorted.length / seconds),
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                    sorted.length == 0 ? 0 : millis(sorted[sorted.length - 1]));
+        }
+
+        /**
+         * Nearest-rank percentile, in milliseconds
+         */
+        private static double percentile(long[] sorted, int percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return millis(sorted[Math.max(rank, 1) - 1]);
+        }
+
+        private static double millis(long nanos) {
+            return round(nanos / 1_000_000.0);
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 100) / 100.0;
+        }
+    }
+
+    static LoadTestReport of(LoadTestSettings settings, List<VirtualUser> users, int failedLogins) {
+        double seconds = settings.duration().toMillis() / 1000.0;
+        List<EndpointStats> endpoints = new ArrayList<>();
+        List<long[]> all = new ArrayList<>();
+        int allErrors = 0;
+        for (Endpoint endpoint : Endpoint.values()) {
+            long[] latencies = users.stream()
+                    .flatMapToLong(user -> LongStream.of(user.samples(endpoint).latencies()))
+                    .toArray();
+            int errors = users.stream().mapToInt(user -> user.samples(endpoint).errors()).sum();
+            if (latencies.length > 0) {
+                endpoints.add(EndpointStats.of(endpoint.key, latencies, errors, seconds));
+            }
+            all.add(latencies);
+            allErrors += errors;
+        }
+        long[] merged = all.stream().flatMapToLong(LongStream::of).toArray();
+        return new LoadTestReport(settings.users(), settings.virtualThreads(), seconds, failedLogins,
+                endpoints, EndpointStats.of("total", merged, allErrors, seconds));
+    }
+
+    void print(PrintStream out) {
+        out.printf("%nLoad test: users=%d, virtualThreads=%s, window=%.0fs, failedLogins=%d%n",
+                users, virtualThreads, seconds, failedLogins);
+        out.printf("%-12s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "rps", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointStats stats : endpoints) {
+            print(out, stats);
+        }
+        print(out, total);
+    }
+
+    void write(Path path) throws Exception {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), this);
+    }
+
+    private static void print(PrintStream out, EndpointStats s) {
+        out.printf("%-12s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                s.endpoint(), s.requests(), s.errors(), s.rps(), s.p50Ms(), s.p95Ms(), s.p99Ms(), s.maxMs());
+    }
+}
@@ -0,0 +1,97 @@
+package fit.hutech.spring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load test on one machine: boots the app on H2 with the loadtest profile,
+ * logs every virtual user in through the form login and drives loadtest.mix for
+ * loadtest.warmup + loadtest.duration. Run with ./mvnw -Ploadtest -DskipTests verify
+ * (see docs/load-testing.md).
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LoadTestApplication.class)
+                .profiles("loadtest")
+                .run(args)) {
+            Environment env = context.getEnvironment();
+            URI base = URI.create("http://localhost:" + env.getRequiredProperty("local.server.port"));
+            LoadTestReport report = run(base, LoadTestSettings.from(env));
+            report.print(System.out);
+            Path output = Path.of(env.getRequiredProperty("loadtest.output"));
+            report.write(output);
+            log.info("Load test report written to {}", output.toAbsolutePath());
+        }
+    }
+
+    static LoadTestReport run(URI base, LoadTestSettings settings) throws InterruptedException {
+        List<VirtualUser> users = new ArrayList<>(settings.users());
+        CountDownLatch loggedIn = new CountDownLatch(settings.users());
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger failedLogins = new AtomicInteger();
+        // Logins are throttled so a large user count ramps up instead of stampeding the pool
+        Semaphore logins = new Semaphore(settings.loginConcurrency());
+        long[] window = new long[2];
+
+        try (var clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             var client = HttpClient.newBuilder()
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(Duration.ofSeconds(30))
+                     .executor(clientExecutor)
+                     .build();
+             var userThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < settings.users(); i++) {
+                var user = new VirtualUser(client, base, LoadTestSeeder.username(i), settings);
+                users.add(user);
+                userThreads.submit(() -> {
+                    boolean ready = false;
+                    logins.acquire();
+                    try {
+                        ready = user.login();
+                    } catch (Exception e) {
+                        log.debug("Login failed", e);
+                    } finally {
+                        logins.release();
+                        loggedIn.countDown();
+                    }
+                    if (!ready) {
+                        failedLogins.incrementAndGet();
+                        return null;
+                    }
+                    go.await();
+                    user.drive(window[0], window[1]);
+                    return null;
+                });
+            }
+
+            long loginStart = System.nanoTime();
+            loggedIn.await();
+            log.info("{} users logged in ({} failed) in {}ms", settings.users(), failedLogins.get(),
+                    (System.nanoTime() - loginStart) / 1_000_000);
+            // Written before go.countDown(), which publishes the window to every user
+            window[0] = System.nanoTime() + settings.warmup().toNanos();
+            window[1] = window[0] + settings.duration().toNanos();
+            go.countDown();
+        }
+        return LoadTestReport.of(settings, users, failedLogins.get());
+    }
+}
@@ -0,0 +1,91 @@
+package fit.hutech.spring.loadtest;
+
+import fit.hutech.spring.constants.Provider;
+import fit.hutech.spring.entities.Category;
+import fit.hutech.spring.entities.Role;
+import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.repositories.IRoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Seeds roles, categories, books and one account per virtual user before the
+ * application is ready, so the search index and category snapshot see the data.
+ */
+@Component
+@Profile("loadtest")
+@Slf4j
+@RequiredArgsConstructor
+public class LoadTestSeeder implements ApplicationRunner {
+    static final String PASSWORD = "loadtest";
+    static final List<String> WORDS = List.of(
+            "java", "spring", "history", "garden", "ocean", "python", "design", "music",
+            "travel", "cooking", "physics", "poetry", "finance", "health", "mystery", "science",
+            "art", "war", "love", "data", "cloud", "river", "mountain", "city");
+    private static final int BATCH_SIZE = 1000;
+
+    private final IRoleRepository roleRepository;
+    private final ICategoryRepository categoryRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${loadtest.books}")
+    private int books;
+    @Value("${loadtest.categories}")
+    private int categories;
+    @Value("${loadtest.users}")
+    private int users;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        roleRepository.save(Role.builder().name("ADMIN").description("Administrator").build());
+        long userRoleId = roleRepository.save(Role.builder().name("USER").description("Customer").build()).getId();
+
+        List<Long> categoryIds = IntStream.range(0, categories)
+                .mapToObj(i -> categoryRepository.save(Category.builder()
+                        .name(WORDS.get(i % WORDS.size()) + " " + i)
+                        .build()).getId())
+                .toList();
+
+        List<Object[]> bookRows = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            String title = WORDS.get(i % WORDS.size()) + " " + WORDS.get(i / WORDS.size() % WORDS.size()) + " " + i;
+            bookRows.add(new Object[]{title, "Author " + (i % 500), 5.0 + i % 95,
+                    1_000_000, categoryIds.get(i % categoryIds.size())});
+        }
+        batch("INSERT INTO book (title, author, price, stock, category_id) VALUES (?, ?, ?, ?, ?)", bookRows);
+
+        // Cost 4 keeps thousands of form logins cheap; BCrypt reads the cost from the hash
+        String hash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        List<Object[]> userRows = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            userRows.add(new Object[]{username(i), hash, username(i) + "@loadtest.local", Provider.LOCAL.value});
+        }
+        batch("INSERT INTO user (username, password, email, provider) VALUES (?, ?, ?, ?)", userRows);
+        jdbcTemplate.update("INSERT INTO user_role (user_id, role_id) SELECT id, ? FROM user", userRoleId);
+
+        log.info("Load test data seeded: books={}, categories={}, users={}, took={}ms",
+                books, categories, users, System.currentTimeMillis() - start);
+    }
+
+    static String username(int i) {
+        return "user" + i;
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
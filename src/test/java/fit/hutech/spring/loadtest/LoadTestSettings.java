@@ -0,0 +1,47 @@
+package fit.hutech.spring.loadtest;
+
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * loadtest.* properties; any of them can be overridden with -D on the command line
+ */
+record LoadTestSettings(int users, int loginConcurrency, int books, Duration warmup, Duration duration, Duration thinkTime,
+                        Map<Endpoint, Integer> mix, boolean virtualThreads) {
+
+    static LoadTestSettings from(Environment env) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String part : env.getRequiredProperty("loadtest.mix").split(",")) {
+            String[] pair = part.trim().split("=");
+            mix.put(Endpoint.of(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return new LoadTestSettings(
+                env.getRequiredProperty("loadtest.users", Integer.class),
+                env.getRequiredProperty("loadtest.login-concurrency", Integer.class),
+                env.getRequiredProperty("loadtest.books", Integer.class),
+                env.getRequiredProperty("loadtest.warmup", Duration.class),
+                env.getRequiredProperty("loadtest.duration", Duration.class),
+                env.getRequiredProperty("loadtest.think-time", Duration.class),
+                mix,
+                env.getProperty("spring.threads.virtual.enabled", Boolean.class, false));
+    }
+
+    /**
+     * Weighted draw from the mix
+     */
+    Endpoint pick(RandomGenerator random) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = random.nextInt(total);
+        for (var entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty load test mix");
+    }
+}
@@ -0,0 +1,173 @@
+package fit.hutech.spring.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * One logged-in browser: its own cookies and CSRF token, one request at a time.
+ * Latencies are kept per user and merged after the run, so recording never contends.
+ */
+final class VirtualUser {
+    private static final Pattern CSRF = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+    private static final int PAGE_SIZE = 20;
+
+    private final HttpClient client;
+    private final URI base;
+    private final String username;
+    private final LoadTestSettings settings;
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+    private final Map<Endpoint, Samples> samples = new EnumMap<>(Endpoint.class);
+    private String csrf;
+
+    VirtualUser(HttpClient client, URI base, String username, LoadTestSettings settings) {
+        this.client = client;
+        this.base = base;
+        this.username = username;
+        this.settings = settings;
+        for (Endpoint endpoint : Endpoint.values()) {
+            samples.put(endpoint, new Samples());
+        }
+    }
+
+    /**
+     * Form login as in SecurityConfig: fetch the token, post the credentials, then pick up
+     * the token issued for the authenticated session
+     */
+    boolean login() throws IOException, InterruptedException {
+        csrf = csrfToken(send(get("/login"), HttpResponse.BodyHandlers.ofString()).body());
+        var response = send(post("/login", Map.of(
+                "username", username, "password", LoadTestSeeder.PASSWORD, "_csrf", csrf)),
+                HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("error")) {
+            return false;
+        }
+        csrf = csrfToken(send(get("/books"), HttpResponse.BodyHandlers.ofString()).body());
+        return csrf != null;
+    }
+
+    void drive(long measureFrom, long until) throws InterruptedException {
+        var random = ThreadLocalRandom.current();
+        long start;
+        while ((start = System.nanoTime()) < until) {
+            Endpoint endpoint = settings.pick(random);
+            boolean ok;
+            try {
+                ok = execute(endpoint, random);
+            } catch (IOException e) {
+                ok = false;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (start >= measureFrom) {
+                samples.get(endpoint).add(elapsed, ok);
+            }
+            if (!settings.thinkTime().isZero()) {
+                Thread.sleep(settings.thinkTime());
+            }
+        }
+    }
+
+    Samples samples(Endpoint endpoint) {
+        return samples.get(endpoint);
+    }
+
+    private boolean execute(Endpoint endpoint, ThreadLocalRandom random) throws IOException, InterruptedException {
+        int pages = Math.max(1, Math.min(settings.books() / PAGE_SIZE, 50));
+        HttpRequest request = switch (endpoint) {
+            case BOOKS -> get("/books?pageNo=" + random.nextInt(pages) + "&pageSize=" + PAGE_SIZE);
+            case SEARCH -> get("/books/search?keyword="
+                    + LoadTestSeeder.WORDS.get(random.nextInt(LoadTestSeeder.WORDS.size())));
+            case API -> get("/api/v1/books?pageNo=" + random.nextInt(pages) + "&pageSize=" + PAGE_SIZE);
+            case ADD_TO_CART -> post("/books/add-to-cart", Map.of(
+                    "id", String.valueOf(random.nextInt(settings.books()) + 1),
+                    "name", "Book", "price", "10", "quantity", "1", "_csrf", csrf));
+            case CHECKOUT -> get("/cart/checkout");
+        };
+        var response = send(request, HttpResponse.BodyHandlers.discarding());
+        // A redirect to the login page means the session was lost, which is a failure here
+        return response.statusCode() < 400
+                && !response.headers().firstValue("Location").orElse("").contains("/login");
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> form) {
+        String body = form.entrySet().stream()
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        var builder = HttpRequest.newBuilder(base.resolve(path));
+        if (!cookies.isEmpty()) {
+            builder.header("Cookie", cookies.entrySet().stream()
+                    .map(e -> e.getKey() + "=" + e.getValue())
+                    .collect(Collectors.joining("; ")));
+        }
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        HttpResponse<T> response = client.send(request, handler);
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            String pair = header.split(";", 2)[0];
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        return response;
+    }
+
+    private static String csrfToken(String html) {
+        Matcher matcher = CSRF.matcher(html);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Latencies in nanoseconds plus the error count for one endpoint
+     */
+    static final class Samples {
+        private long[] latencies = new long[256];
+        private int size;
+        private int errors;
+
+        void add(long latency, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = latency;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        long[] latencies() {
+            return Arrays.copyOf(latencies, size);
+        }
+
+        int errors() {
+            return errors;
+        }
+    }
+}
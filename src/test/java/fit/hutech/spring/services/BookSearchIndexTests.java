@@ -0,0 +1,90 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Category;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookSearchIndexTests {
+    private BookSearchIndex index;
+    private Category novels;
+
+    @BeforeEach
+    void setUp() {
+        // No transaction is active, so every put/remove applies right away
+        index = new BookSearchIndex(null, null);
+        novels = Category.builder().id(1L).name("Tiểu thuyết").build();
+        index.putCategory(novels);
+    }
+
+    @Test
+    void normalizesCaseAccentsAndSpaces() {
+        assertEquals("duong den thanh cong", BookSearchIndex.normalize("  Đường   đến THÀNH công "));
+        assertEquals("", BookSearchIndex.normalize(null));
+    }
+
+    @Test
+    void ranksTitleOverAuthorOverCategory() {
+        put(1L, "Notes", "Tieu Thuyet Nguyen", null);
+        put(2L, "Tiểu thuyết mới", "Someone", null);
+        put(3L, "Other book", "Someone", novels);
+        put(4L, "Về tiểu thuyết", "Someone", null);
+
+        // Title prefix, title, author, category
+        assertEquals(List.of(2L, 4L, 1L, 3L), index.search("tieu thuyet", 10));
+    }
+
+    @Test
+    void returnsOnlyTheBestLimitHits() {
+        for (long id = 1; id <= 50; id++) {
+            put(id, "Java volume " + id, "Someone", null);
+        }
+        put(100L, "Java", "Someone", null);
+
+        assertEquals(List.of(1L, 2L, 3L), index.search("volume", 3));
+        assertEquals(List.of(1L, 2L), index.search("java", 2));
+        assertEquals(51, index.search("java", 1_000).size());
+        assertTrue(index.search("java", 0).isEmpty());
+    }
+
+    @Test
+    void findsKeywordsShorterThanAGram() {
+        put(1L, "Go", "Someone", null);
+        put(2L, "Rust", "Someone", null);
+
+        assertEquals(List.of(1L), index.search("go", 10));
+        assertEquals(List.of(2L), index.search("u", 10));
+        assertTrue(index.search("zq", 10).isEmpty());
+    }
+
+    @Test
+    void followsRenamesAndRemovals() {
+        put(1L, "Old title", "Someone", novels);
+        put(1L, "New title", "Someone", novels);
+
+        assertTrue(index.search("old", 10).isEmpty());
+        assertEquals(List.of(1L), index.search("new", 10));
+        assertTrue(index.search("ol", 10).isEmpty());
+
+        index.removeBook(1L);
+        assertTrue(index.search("title", 10).isEmpty());
+        assertTrue(index.search("thuyet", 10).isEmpty());
+
+        put(2L, "Another", "Someone", novels);
+        index.putCategory(Category.builder().id(1L).name("Khoa học").build());
+        assertTrue(index.search("thuyet", 10).isEmpty());
+        assertEquals(List.of(2L), index.search("khoa hoc", 10));
+
+        index.removeCategory(1L);
+        assertTrue(index.search("another", 10).isEmpty());
+    }
+
+    private void put(Long id, String title, String author, Category category) {
+        index.putBook(Book.builder().id(id).title(title).author(author).category(category).build());
+    }
+}
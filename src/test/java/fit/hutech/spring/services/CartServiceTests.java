@@ -0,0 +1,107 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.daos.Cart;
+import fit.hutech.spring.daos.Item;
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.InMemoryCartStore;
+import fit.hutech.spring.utils.BookstoreMetrics;
+import fit.hutech.spring.viewmodels.CartOpVm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartServiceTests {
+    private static final Book DUNE = Book.builder().id(1L).title("Dune").price(9.5).build();
+    private static final Book CLEAN_CODE = Book.builder().id(2L).title("Clean Code").price(19.99).build();
+
+    private CartService cartService;
+    private MockHttpSession session;
+
+    @BeforeEach
+    void setUp() {
+        var bookRepository = mock(IBookRepository.class);
+        // Only the books asked for, like the IN query
+        when(bookRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            return List.of(DUNE, CLEAN_CODE).stream()
+                    .filter(book -> contains(ids, book.getId()))
+                    .toList();
+        });
+        var cartStore = new InMemoryCartStore();
+        // applyOps never touches invoices, the rollups or the best sellers
+        cartService = new CartService(null, null, bookRepository,
+                new BookstoreMetrics(new SimpleMeterRegistry(), cartStore), cartStore, null, null);
+        // No security context here, so the service keys the cart by session id
+        session = new MockHttpSession();
+    }
+
+    @Test
+    void appliesTheWholeBatch() {
+        var result = cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.ADD, 1L, 2),
+                new CartOpVm(CartOpVm.Op.ADD, 2L, 1),
+                new CartOpVm(CartOpVm.Op.UPDATE, 1L, 5),
+                new CartOpVm(CartOpVm.Op.REMOVE, 2L, null)));
+
+        assertEquals(List.of(new Item(1L, "Dune", 9.5, 5)), cartService.getCart(session).getCartItems());
+        assertEquals(List.of(2L), result.removed());
+        assertEquals(5, result.totalQuantity());
+        assertEquals(47.5, result.totalPrice());
+    }
+
+    @Test
+    void anInvalidOperationRejectsTheWholeBatch() {
+        cartService.applyOps(session, List.of(new CartOpVm(CartOpVm.Op.ADD, 1L, 1)));
+
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.ADD, 2L, 3),
+                new CartOpVm(CartOpVm.Op.REMOVE, 1L, null),
+                new CartOpVm(CartOpVm.Op.ADD, 1L, 0))));
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.REMOVE, 1L, null),
+                new CartOpVm(CartOpVm.Op.UPDATE, 2L, null))));
+
+        assertEquals(List.of(new Item(1L, "Dune", 9.5, 1)), cartService.getCart(session).getCartItems());
+    }
+
+    @Test
+    void anUnknownBookOnAddIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.ADD, 1L, 1),
+                new CartOpVm(CartOpVm.Op.ADD, 404L, 1))));
+
+        assertEquals(0, cartService.getSumQuantity(session));
+    }
+
+    @Test
+    void quantitiesAreCapped() {
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.ADD, 1L, Integer.MAX_VALUE))));
+        assertThrows(IllegalArgumentException.class, () -> cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.UPDATE, 1L, Cart.MAX_QUANTITY + 1))));
+
+        cartService.applyOps(session, List.of(
+                new CartOpVm(CartOpVm.Op.ADD, 1L, Cart.MAX_QUANTITY),
+                new CartOpVm(CartOpVm.Op.ADD, 1L, Cart.MAX_QUANTITY)));
+        assertEquals(Cart.MAX_QUANTITY, cartService.getSumQuantity(session));
+    }
+
+    private static boolean contains(Iterable<Long> ids, Long id) {
+        for (Long candidate : ids) {
+            if (candidate.equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
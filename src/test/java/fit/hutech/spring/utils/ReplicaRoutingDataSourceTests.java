@@ -0,0 +1,104 @@
+package fit.hutech.spring.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two embedded H2 databases stand in for the primary and the replica;
+ * each holds a marker row naming itself.
+ */
+class ReplicaRoutingDataSourceTests {
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        var db = routed(Duration.ofSeconds(5));
+        assertEquals("replica", db.read());
+        assertEquals("primary", db.write());
+        assertEquals("primary", db.outsideTransaction());
+    }
+
+    @Test
+    void sessionReadsItsOwnWritesWithinLag() {
+        var db = routed(Duration.ofSeconds(5));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        assertEquals("replica", db.read());
+        db.write();
+        assertEquals("primary", db.read());
+    }
+
+    @Test
+    void sessionReturnsToReplicaOnceLagHasPassed() {
+        var db = routed(Duration.ZERO);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        db.write();
+        assertEquals("replica", db.read());
+    }
+
+    @Test
+    void workPinnedToPrimaryReadsFromPrimary() {
+        var db = routed(Duration.ofSeconds(5));
+
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(db::read));
+        assertEquals("replica", db.read());
+    }
+
+    private static Routed routed(Duration maxLag) {
+        var routing = new ReplicaRoutingDataSource(maxLag);
+        routing.setTargetDataSources(Map.of(
+                ReplicaRoutingDataSource.Target.PRIMARY, embedded("primary"),
+                ReplicaRoutingDataSource.Target.REPLICA, embedded("replica")));
+        routing.afterPropertiesSet();
+        return new Routed(new LazyConnectionDataSourceProxy(routing));
+    }
+
+    private static DataSource embedded(String name) {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        var jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(20))");
+        jdbc.execute("DELETE FROM marker");
+        jdbc.update("INSERT INTO marker VALUES (?)", name);
+        return dataSource;
+    }
+
+    private record Routed(DataSource dataSource) {
+        String read() {
+            var tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            tx.setReadOnly(true);
+            return tx.execute(status -> marker());
+        }
+
+        String write() {
+            var tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            return tx.execute(status -> marker());
+        }
+
+        String outsideTransaction() {
+            return marker();
+        }
+
+        private String marker() {
+            return new JdbcTemplate(dataSource).queryForObject("SELECT name FROM marker", String.class);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package fit.hutech.spring.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTests {
+
+    @Test
+    void keepsHeavyHittersWithBoundedOverestimate() {
+        var summary = new SpaceSaving(50);
+        long total = 0;
+        for (int round = 0; round < 200; round++) {
+            for (long key = 1; key <= 5; key++) {
+                summary.add(key, 10);
+                total += 10;
+            }
+            // A long tail of keys seen once each
+            for (long key = 0; key < 20; key++) {
+                summary.add(1_000 + round * 20L + key, 1);
+                total++;
+            }
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        summary.forEach((key, count, error) -> {
+            counts.put(key, count);
+            assertTrue(count - error >= 0);
+        });
+        assertEquals(50, summary.size());
+        long bound = total / 50;
+        for (long key = 1; key <= 5; key++) {
+            assertTrue(counts.containsKey(key), "heavy hitter " + key + " evicted");
+            assertTrue(counts.get(key) >= 2_000 && counts.get(key) <= 2_000 + bound);
+        }
+    }
+
+    @Test
+    void countsExactlyBelowCapacity() {
+        var summary = new SpaceSaving(10);
+        summary.add(7, 3);
+        summary.add(7, 2);
+        summary.add(8, 0);
+        Map<Long, Long> counts = new HashMap<>();
+        summary.forEach((key, count, error) -> counts.put(key, count));
+        assertEquals(Map.of(7L, 5L), counts);
+    }
+}